@@ -0,0 +1,29 @@
+package info.ocodo.android.wearable.watchface;
+
+import java.util.TimeZone;
+
+/**
+ * Source of wall clock time and the local time zone for the engines.
+ *
+ * Faces read both through this instead of {@link System#currentTimeMillis()} and
+ * {@link TimeZone#getDefault()}, so a simulated clock can stand in for tests that replay
+ * days, midnights and zone changes.
+ */
+interface Clock {
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getDefault();
+        }
+    };
+
+    long currentTimeMillis();
+
+    TimeZone getTimeZone();
+}
@@ -0,0 +1,87 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.annotation.SuppressLint;
+import android.graphics.Paint;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Upper-cased date text for one SimpleDateFormat pattern, formatted once per local day.
+ *
+ * The text is keyed on (pattern, locale, time zone, day number) and its measured width is
+ * kept alongside, so drawing the date on the frame path does no formatting or allocation.
+ * Engines call {@link #invalidate()} on ACTION_TIMEZONE_CHANGED and ACTION_TIME_CHANGED,
+ * and pass locale changes to {@link #setLocale}; midnight rollover is picked up by the
+ * day number.
+ */
+class DateTextCache {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final String mPattern;
+    private final Clock mClock = OcodoWatchFaceUtils.getClock();
+    private final Date mDate = new Date();
+    private SimpleDateFormat mFormat;
+    private Locale mLocale = Locale.getDefault();
+    private TimeZone mTimeZone;
+    private long mDay = Long.MIN_VALUE;
+    private String mText;
+    private Paint mMeasuredPaint;
+    private float mMeasuredTextSize;
+    private float mWidth;
+
+    DateTextCache(String pattern) {
+        mPattern = pattern;
+    }
+
+    void invalidate() {
+        mTimeZone = null;
+        mText = null;
+    }
+
+    void setLocale(Locale locale) {
+        if (!locale.equals(mLocale)) {
+            mLocale = locale;
+            mFormat = null;
+            mText = null;
+        }
+    }
+
+    String getText(long now) {
+        if (mTimeZone == null) {
+            mTimeZone = mClock.getTimeZone();
+        }
+        long day = (now + mTimeZone.getOffset(now)) / DAY_MS;
+        if (mText == null || day != mDay) {
+            format(now, day);
+        }
+        return mText;
+    }
+
+    /**
+     * Width of the text last returned by {@link #getText}, measured with {@code paint}.
+     */
+    float getWidth(Paint paint) {
+        if (paint != mMeasuredPaint || paint.getTextSize() != mMeasuredTextSize) {
+            mMeasuredPaint = paint;
+            mMeasuredTextSize = paint.getTextSize();
+            mWidth = paint.measureText(mText);
+        }
+        return mWidth;
+    }
+
+    @SuppressLint("SimpleDateFormat")
+    private void format(long now, long day) {
+        if (mFormat == null) {
+            mFormat = new SimpleDateFormat(mPattern, mLocale);
+        }
+        mFormat.setTimeZone(mTimeZone);
+        mDate.setTime(now);
+        mText = mFormat.format(mDate).toUpperCase(mLocale);
+        mDay = day;
+        mMeasuredPaint = null;
+    }
+}
@@ -0,0 +1,89 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * Offscreen cache for the static parts of a watch face (background, ticks, numerals, logo).
+ *
+ * The dial is painted once into a bitmap per (surface size, ambient/interactive, low-bit)
+ * key and then blitted with a single drawBitmap per frame. Engines call {@link #prepare}
+ * from onSurfaceChanged / onAmbientModeChanged / onPropertiesChanged so the rebuild
+ * happens there rather than on the frame path.
+ */
+class DialLayer {
+
+    interface Painter {
+        void paintDial(Canvas canvas);
+    }
+
+    private static final int INTERACTIVE = 0;
+    private static final int AMBIENT = 1;
+
+    private final Painter mPainter;
+    private final Bitmap[] mBitmaps = new Bitmap[2];
+    private int mWidth;
+    private int mHeight;
+    private boolean mLowBitAmbient;
+
+    DialLayer(Painter painter) {
+        mPainter = painter;
+    }
+
+    void setSurfaceSize(int width, int height) {
+        if (width != mWidth || height != mHeight) {
+            mWidth = width;
+            mHeight = height;
+            invalidate();
+        }
+    }
+
+    void setLowBitAmbient(boolean lowBitAmbient) {
+        if (lowBitAmbient != mLowBitAmbient) {
+            mLowBitAmbient = lowBitAmbient;
+            mBitmaps[AMBIENT] = recycle(mBitmaps[AMBIENT]);
+        }
+    }
+
+    /**
+     * Drops every cached bitmap, e.g. when text sizes or colours used by the dial change.
+     */
+    void invalidate() {
+        mBitmaps[INTERACTIVE] = recycle(mBitmaps[INTERACTIVE]);
+        mBitmaps[AMBIENT] = recycle(mBitmaps[AMBIENT]);
+    }
+
+    /**
+     * Renders the dial for the given mode if it is not cached yet. The painter is expected
+     * to have its paints styled for that mode already.
+     */
+    void prepare(boolean ambient) {
+        int index = ambient ? AMBIENT : INTERACTIVE;
+        if (mBitmaps[index] == null && mWidth > 0 && mHeight > 0) {
+            Bitmap bitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mPainter.paintDial(new Canvas(bitmap));
+            mBitmaps[index] = bitmap;
+        }
+    }
+
+    void draw(Canvas canvas, boolean ambient) {
+        prepare(ambient);
+        Bitmap bitmap = mBitmaps[ambient ? AMBIENT : INTERACTIVE];
+        if (bitmap != null) {
+            canvas.drawBitmap(bitmap, 0, 0, null);
+        } else {
+            mPainter.paintDial(canvas);
+        }
+    }
+
+    void release() {
+        invalidate();
+    }
+
+    private static Bitmap recycle(Bitmap bitmap) {
+        if (bitmap != null) {
+            bitmap.recycle();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,193 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.fitness.Fitness;
+import com.google.android.gms.fitness.FitnessStatusCodes;
+import com.google.android.gms.fitness.data.DataType;
+import com.google.android.gms.fitness.result.DailyTotalResult;
+
+/**
+ * The Fitness {@link GoogleApiClient}, kept connected across brief visibility toggles.
+ *
+ * {@link #acquire()} connects, or cancels a pending disconnect; {@link #release()} only
+ * disconnects after the grace period, so a wrist flick or a peeking card does not cost a
+ * full connect cycle. The step recording subscription is made on the first connect and
+ * not repeated once it succeeded (or was already in place) in this process. Connects,
+ * subscribes and reads are counted, and their hourly rates are logged at debug level on
+ * every disconnect, where a connect cycle ends.
+ */
+class FitnessConnection implements
+        GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener {
+
+    private static final String TAG = "FitnessConnection";
+
+    static final long DEFAULT_GRACE_PERIOD_MS = 30 * 1000L;
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    interface Listener {
+        void onConnected();
+
+        void onDisconnected();
+    }
+
+    private final GoogleApiClient mGoogleApiClient;
+    private final Listener mListener;
+    private final Clock mClock = OcodoWatchFaceUtils.getClock();
+    private final Handler mHandler = new Handler();
+    private long mGracePeriodMillis = DEFAULT_GRACE_PERIOD_MS;
+    private boolean mAcquired;
+    private boolean mSubscribed;
+
+    private final long mCountingSince;
+    private int mConnects;
+    private int mSubscribes;
+    private int mReads;
+
+    private final Runnable mDisconnect = new Runnable() {
+        @Override
+        public void run() {
+            disconnect();
+        }
+    };
+
+    FitnessConnection(Context context, Listener listener) {
+        mListener = listener;
+        mGoogleApiClient = new GoogleApiClient.Builder(context)
+                .addConnectionCallbacks(this)
+                .addOnConnectionFailedListener(this)
+                .addApi(Fitness.HISTORY_API)
+                .addApi(Fitness.RECORDING_API)
+                .useDefaultAccount()
+                .build();
+        mCountingSince = mClock.currentTimeMillis();
+    }
+
+    /**
+     * How long to stay connected after {@link #release()}; 0 disconnects straight away.
+     */
+    void setGracePeriod(long millis) {
+        mGracePeriodMillis = millis;
+    }
+
+    void acquire() {
+        if (mAcquired) {
+            return;
+        }
+        mAcquired = true;
+        mHandler.removeCallbacks(mDisconnect);
+        if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting()) {
+            mConnects++;
+            mGoogleApiClient.connect();
+        }
+    }
+
+    void release() {
+        if (!mAcquired) {
+            return;
+        }
+        mAcquired = false;
+        if (mGracePeriodMillis > 0) {
+            mHandler.postDelayed(mDisconnect, mGracePeriodMillis);
+        } else {
+            disconnect();
+        }
+    }
+
+    boolean isConnected() {
+        return mGoogleApiClient.isConnected();
+    }
+
+    /**
+     * Reads today's step total; only call while {@link #isConnected()}.
+     */
+    PendingResult<DailyTotalResult> readDailyTotal() {
+        mReads++;
+        return Fitness.HistoryApi.readDailyTotal(mGoogleApiClient, DataType.TYPE_STEP_COUNT_DELTA);
+    }
+
+    float getConnectsPerHour() {
+        return perHour(mConnects);
+    }
+
+    float getSubscribesPerHour() {
+        return perHour(mSubscribes);
+    }
+
+    float getReadsPerHour() {
+        return perHour(mReads);
+    }
+
+    @Override
+    public void onConnected(Bundle connectionHint) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onConnected: " + connectionHint);
+        }
+        if (!mSubscribed) {
+            subscribeToSteps();
+        }
+        mListener.onConnected();
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onConnectionSuspended: " + cause);
+        }
+        mListener.onDisconnected();
+    }
+
+    @Override
+    public void onConnectionFailed(ConnectionResult result) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onConnectionFailed: " + result);
+        }
+    }
+
+    private void subscribeToSteps() {
+        mSubscribes++;
+        Fitness.RecordingApi.subscribe(mGoogleApiClient, DataType.TYPE_STEP_COUNT_DELTA)
+                .setResultCallback(new ResultCallback<Status>() {
+                    @Override
+                    public void onResult(Status status) {
+                        if (status.isSuccess()) {
+                            mSubscribed = true;
+                            if (status.getStatusCode()
+                                    == FitnessStatusCodes.SUCCESS_ALREADY_SUBSCRIBED) {
+                                Log.i(TAG, "Existing subscription for activity detected.");
+                            } else {
+                                Log.i(TAG, "Successfully subscribed!");
+                            }
+                        } else {
+                            Log.i(TAG, "There was a problem subscribing.");
+                        }
+                    }
+                });
+    }
+
+    private void disconnect() {
+        if (mGoogleApiClient.isConnected() || mGoogleApiClient.isConnecting()) {
+            mGoogleApiClient.disconnect();
+            mListener.onDisconnected();
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, String.format("disconnected: %.1f connects, %.1f subscribes, %.1f reads per hour",
+                    getConnectsPerHour(), getSubscribesPerHour(), getReadsPerHour()));
+        }
+    }
+
+    private float perHour(int count) {
+        long elapsed = Math.max(mClock.currentTimeMillis() - mCountingSince, 1);
+        return count * (float) HOUR_MS / elapsed;
+    }
+}
@@ -0,0 +1,157 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Renders the next frame ahead of time, right after the current one is posted.
+ *
+ * The renderer draws into a single buffer for the predicted time of the next frame. When
+ * that frame comes, {@link #present} just blits the buffer if it was rendered for the
+ * same period and nothing was invalidated since, and otherwise renders inline, so a
+ * missed prediction only costs the work done ahead. Engines call {@link #invalidate()}
+ * whenever something the renderer reads changes, which drops the buffered frame and any
+ * render still queued.
+ *
+ * Renders run on the engine's own looper, queued behind the frame being drawn, so the
+ * renderer sees the engine state exactly as onDraw does and nothing needs locking. The
+ * queued render still runs in the same wakeup, which matters in ambient mode, where the
+ * CPU may suspend as soon as the engine thread goes idle.
+ */
+class FramePrerenderer {
+
+    private static final String TAG = "FramePrerenderer";
+
+    interface Renderer {
+        void render(Canvas canvas, long timeMillis);
+    }
+
+    private final Renderer mRenderer;
+    private final long mPeriodMillis;
+    private final Handler mHandler;
+
+    private int mGeneration;
+    private int mWidth;
+    private int mHeight;
+    private Bitmap mBuffer;
+    private Canvas mBufferCanvas;
+    private long mBufferPeriod = Long.MIN_VALUE;
+    private int mBufferGeneration = -1;
+    private long mRequestedPeriod = Long.MIN_VALUE;
+    private int mRequestedGeneration = -1;
+    private long mPresentedPeriod = Long.MIN_VALUE;
+    private int mPresentedGeneration = -1;
+    private int mHits;
+    private int mMisses;
+
+    /**
+     * @param looper       the engine's looper
+     * @param periodMillis how long a rendered frame stays correct, e.g. 1000 for a face
+     *                     whose fastest layer changes once a second
+     */
+    FramePrerenderer(Looper looper, long periodMillis, Renderer renderer) {
+        mRenderer = renderer;
+        mPeriodMillis = periodMillis;
+        mHandler = new Handler(looper);
+    }
+
+    void setSurfaceSize(int width, int height) {
+        if (width != mWidth || height != mHeight) {
+            mWidth = width;
+            mHeight = height;
+            releaseBuffer();
+        }
+        invalidate();
+    }
+
+    /**
+     * Discards the buffered frame and any render still queued.
+     */
+    void invalidate() {
+        mGeneration++;
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * True when a frame at {@code timeMillis} would differ from the one last presented.
+     */
+    boolean isStale(long timeMillis) {
+        return period(timeMillis) != mPresentedPeriod || mPresentedGeneration != mGeneration;
+    }
+
+    void present(Canvas canvas, long timeMillis) {
+        long period = period(timeMillis);
+        if (mBuffer != null && mBufferPeriod == period && mBufferGeneration == mGeneration) {
+            canvas.drawBitmap(mBuffer, 0, 0, null);
+            mHits++;
+        } else {
+            mRenderer.render(canvas, timeMillis);
+            mMisses++;
+        }
+        mPresentedPeriod = period;
+        mPresentedGeneration = mGeneration;
+    }
+
+    /**
+     * Queues a render of the frame at {@code timeMillis}, unless one is already buffered
+     * or queued for that period.
+     */
+    void prepare(final long timeMillis) {
+        final long period = period(timeMillis);
+        final int generation = mGeneration;
+        if (period == mRequestedPeriod && generation == mRequestedGeneration) {
+            return;
+        }
+        mRequestedPeriod = period;
+        mRequestedGeneration = generation;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                renderAhead(timeMillis, period, generation);
+            }
+        });
+    }
+
+    /**
+     * Frees the buffer, e.g. when the engine leaves the mode it prerenders in; the next
+     * {@link #prepare} allocates it again.
+     */
+    void releaseBuffer() {
+        invalidate();
+        if (mBuffer != null) {
+            mBuffer.recycle();
+            mBuffer = null;
+            mBufferCanvas = null;
+        }
+    }
+
+    void release() {
+        releaseBuffer();
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, mHits + " prerendered frames presented, " + mMisses + " rendered inline");
+        }
+    }
+
+    private void renderAhead(long timeMillis, long period, int generation) {
+        if (generation != mGeneration || mWidth <= 0 || mHeight <= 0) {
+            return;
+        }
+        if (mBuffer == null) {
+            mBuffer = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mBufferCanvas = new Canvas(mBuffer);
+        }
+        mBuffer.eraseColor(Color.TRANSPARENT);
+        mRenderer.render(mBufferCanvas, timeMillis);
+        mBufferPeriod = period;
+        mBufferGeneration = generation;
+    }
+
+    private long period(long timeMillis) {
+        long period = timeMillis / mPeriodMillis;
+        return timeMillis < 0 && timeMillis % mPeriodMillis != 0 ? period - 1 : period;
+    }
+}
@@ -0,0 +1,150 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+/**
+ * Steps the interactive frame rate of sweeping faces down as the battery drains.
+ *
+ * Battery level, charging state and temperature come from the sticky
+ * {@link Intent#ACTION_BATTERY_CHANGED} broadcast, battery saver from
+ * {@link PowerManager#ACTION_POWER_SAVE_MODE_CHANGED}; nothing is polled. Battery
+ * temperature stands in for thermal status, which this SDK level does not expose.
+ */
+class FrameRateGovernor {
+
+    private static final String TAG = "FrameRateGovernor";
+
+    enum Tier {
+        FULL(20), REDUCED(10), LOW(4), MINIMAL(1);
+
+        final int framesPerSecond;
+
+        Tier(int framesPerSecond) {
+            this.framesPerSecond = framesPerSecond;
+        }
+
+        private Tier lower() {
+            return this == MINIMAL ? MINIMAL : values()[ordinal() + 1];
+        }
+    }
+
+    interface Listener {
+        void onTierChanged(Tier tier);
+    }
+
+    private static final int REDUCED_BELOW_PERCENT = 50;
+    private static final int LOW_BELOW_PERCENT = 30;
+    private static final int MINIMAL_BELOW_PERCENT = 15;
+
+    /**
+     * Battery temperature, in tenths of a degree Celsius, above which we drop a tier.
+     */
+    private static final int HOT_TENTHS_CELSIUS = 420;
+
+    private final Context mContext;
+    private final Listener mListener;
+    private final PowerManager mPowerManager;
+    private Tier mTier = Tier.FULL;
+    private int mLevelPercent = 100;
+    private boolean mCharging;
+    private int mTemperature;
+    private boolean mRegisteredReceiver;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                readBattery(intent);
+            }
+            update();
+        }
+    };
+
+    FrameRateGovernor(Context context, Listener listener) {
+        mContext = context;
+        mListener = listener;
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    /**
+     * Registering returns the sticky battery broadcast straight away, so the tier is
+     * current before the first interactive frame.
+     */
+    void start() {
+        if (mRegisteredReceiver) {
+            return;
+        }
+        mRegisteredReceiver = true;
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        Intent battery = mContext.registerReceiver(mReceiver, filter);
+        if (battery != null) {
+            readBattery(battery);
+        }
+        update();
+    }
+
+    void stop() {
+        if (!mRegisteredReceiver) {
+            return;
+        }
+        mRegisteredReceiver = false;
+        mContext.unregisterReceiver(mReceiver);
+    }
+
+    Tier getTier() {
+        return mTier;
+    }
+
+    static Tier tierFor(int levelPercent, boolean charging, boolean powerSave, int temperatureTenthsCelsius) {
+        Tier tier;
+        if (charging || levelPercent >= REDUCED_BELOW_PERCENT) {
+            tier = Tier.FULL;
+        } else if (levelPercent >= LOW_BELOW_PERCENT) {
+            tier = Tier.REDUCED;
+        } else if (levelPercent >= MINIMAL_BELOW_PERCENT) {
+            tier = Tier.LOW;
+        } else {
+            tier = Tier.MINIMAL;
+        }
+        if (powerSave && tier.compareTo(Tier.LOW) < 0) {
+            tier = Tier.LOW;
+        }
+        if (temperatureTenthsCelsius >= HOT_TENTHS_CELSIUS) {
+            tier = tier.lower();
+        }
+        return tier;
+    }
+
+    private void readBattery(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (level >= 0 && scale > 0) {
+            mLevelPercent = level * 100 / scale;
+        }
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        mCharging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+        mTemperature = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+    }
+
+    private void update() {
+        boolean powerSave = mPowerManager != null && mPowerManager.isPowerSaveMode();
+        Tier tier = tierFor(mLevelPercent, mCharging, powerSave, mTemperature);
+        if (tier != mTier) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "tier " + mTier + " -> " + tier + ": battery " + mLevelPercent + "%"
+                        + (mCharging ? " charging" : "") + (powerSave ? " saver" : "")
+                        + ", " + mTemperature / 10f + "C");
+            }
+            mTier = tier;
+            mListener.onTierChanged(tier);
+        }
+    }
+}
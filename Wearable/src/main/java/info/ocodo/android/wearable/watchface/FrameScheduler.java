@@ -0,0 +1,210 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * Drives interactive frames from display vsync at a target frame rate.
+ *
+ * Each frame is timed against the vsync the Choreographer hands us, projected one vsync
+ * ahead to when it will be on screen and converted to wall clock time through a
+ * {@link SweepTimebase}, so hands are placed for the frame being produced rather than for
+ * whenever a Handler message happened to be delivered. Between frames the scheduler sleeps via a
+ * delayed frame callback instead of waking on every vsync.
+ *
+ * Faces whose second hand moves in discrete steps declare a {@link BeatRate} instead, and
+ * are only woken on the first vsync after each beat boundary.
+ */
+class FrameScheduler implements Choreographer.FrameCallback {
+
+    interface Callback {
+        /**
+         * False when a frame at this time would look exactly like the last one drawn.
+         */
+        boolean needsFrame(long frameTimeMillis);
+
+        void onFrame(long frameTimeMillis);
+    }
+
+    /**
+     * Beats per second of a stepping second hand. Beats are aligned to wall clock second
+     * boundaries, so a 6 Hz hand steps at 0, 167, 333, ... ms into every second.
+     */
+    enum BeatRate {
+        TICKING(1), BEATS_4(4), BEATS_6(6), BEATS_8(8);
+
+        final int beatsPerSecond;
+
+        BeatRate(int beatsPerSecond) {
+            this.beatsPerSecond = beatsPerSecond;
+        }
+
+        /**
+         * First beat boundary strictly after {@code timeMillis}.
+         */
+        long nextBeat(long timeMillis) {
+            long second = timeMillis - floorMod(timeMillis, 1000);
+            long beat = floorMod(timeMillis, 1000) * beatsPerSecond / 1000 + 1;
+            return second + (beat * 1000 + beatsPerSecond - 1) / beatsPerSecond;
+        }
+    }
+
+    private static final String TAG = "FrameScheduler";
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * A frame drawn against one vsync is shown at the next, so hands are placed for then.
+     */
+    private static final long PRESENTATION_LATENCY_NANOS = 16666667L;
+
+    /**
+     * Callbacks are delayed by this much less than the frame interval so they land on the
+     * vsync closest to the target instead of the one after it.
+     */
+    private static final long VSYNC_SLACK_MS = 8L;
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final Clock mClock;
+    private final Callback mCallback;
+    private final SweepTimebase mTimebase;
+    private final JitterMeter mJitter = new JitterMeter();
+    private long mFrameIntervalMillis;
+    private BeatRate mBeatRate;
+    private long mFrameTimeMillis;
+    private long mHoldUntilMillis;
+    private boolean mRunning;
+
+    FrameScheduler(Clock clock, Callback callback, int framesPerSecond) {
+        mClock = clock;
+        mCallback = callback;
+        mTimebase = new SweepTimebase(clock);
+        setFrameRate(framesPerSecond);
+    }
+
+    FrameScheduler(Clock clock, Callback callback, BeatRate beatRate) {
+        mClock = clock;
+        mCallback = callback;
+        mTimebase = new SweepTimebase(clock);
+        setBeatRate(beatRate);
+    }
+
+    void setFrameRate(int framesPerSecond) {
+        mFrameIntervalMillis = 1000L / Math.max(1, framesPerSecond);
+        mBeatRate = null;
+        mJitter.reset();
+    }
+
+    void setBeatRate(BeatRate beatRate) {
+        mBeatRate = beatRate;
+    }
+
+    void start() {
+        if (!mRunning) {
+            mRunning = true;
+            mFrameTimeMillis = 0;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    void stop() {
+        if (mRunning && Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "sweep " + mJitter);
+        }
+        mRunning = false;
+        mHoldUntilMillis = 0;
+        mFrameTimeMillis = 0;
+        mChoreographer.removeFrameCallback(this);
+        mJitter.reset();
+        mTimebase.reset();
+    }
+
+    /**
+     * Renders no frames before {@code timeMillis}, for stretches where the face knows
+     * nothing will move. The first frame after it is drawn as usual.
+     */
+    void holdUntil(long timeMillis) {
+        mHoldUntilMillis = timeMillis;
+        mFrameTimeMillis = 0;
+        mJitter.reset();
+    }
+
+    /**
+     * Holds frames until the next local minute once {@code time}, holding the frame just
+     * drawn, is {@code fromMillisOfMinute} or more into its minute, e.g. while a
+     * stop-to-go second hand rests at 12 waiting for the minute hand to jump.
+     */
+    void holdToNextMinute(TimeDecomposer time, long fromMillisOfMinute) {
+        int millisOfMinute = time.getMillisOfMinute();
+        if (millisOfMinute >= fromMillisOfMinute) {
+            holdUntil(time.getTimeMillis() + 60000L - millisOfMinute);
+        }
+    }
+
+    /**
+     * Steps frame times straight to the wall clock on the next frame; call this from the
+     * ACTION_TIME_CHANGED and ACTION_TIMEZONE_CHANGED receiver.
+     */
+    void resetTimebase() {
+        mTimebase.reset();
+        mJitter.reset();
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Step statistics of a sweeping second hand since the rate last changed, for
+     * instrumentation. Sweeping faces add the rotation they actually draw.
+     */
+    JitterMeter getJitter() {
+        return mJitter;
+    }
+
+    /**
+     * Wall clock time of the frame being produced while running, otherwise the current
+     * time, e.g. for ambient ticks. Draws that are not driven by a frame, such as the
+     * first one after {@link #start()} or any during a {@link #holdUntil(long)} pause, also
+     * get the current time rather than that of a long gone frame.
+     */
+    long getFrameTimeMillis() {
+        return mRunning && mFrameTimeMillis != 0 ? mFrameTimeMillis : mClock.currentTimeMillis();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        mFrameTimeMillis = mTimebase.toWallMillis(frameTimeNanos + PRESENTATION_LATENCY_NANOS);
+        if (mCallback.needsFrame(mFrameTimeMillis)) {
+            mCallback.onFrame(mFrameTimeMillis);
+        }
+        if (mRunning) {
+            mChoreographer.postFrameCallbackDelayed(this, Math.max(0, nextFrameDelay(frameTimeNanos)));
+        }
+    }
+
+    private long nextFrameDelay(long frameTimeNanos) {
+        if (mHoldUntilMillis != 0) {
+            long holdMillis = mHoldUntilMillis - mClock.currentTimeMillis();
+            mHoldUntilMillis = 0;
+            if (holdMillis > 0) {
+                return holdMillis + 1;
+            }
+        }
+        if (mBeatRate != null) {
+            // One extra millisecond keeps clock conversion jitter from waking us just
+            // before the boundary, where the hand has not moved yet.
+            long nowMillis = mClock.currentTimeMillis();
+            return mBeatRate.nextBeat(Math.max(nowMillis, mFrameTimeMillis)) - nowMillis + 1;
+        }
+        long elapsedMillis = (System.nanoTime() - frameTimeNanos) / NANOS_PER_MILLI;
+        return mFrameIntervalMillis - elapsedMillis - VSYNC_SLACK_MS;
+    }
+
+    private static long floorMod(long value, long divisor) {
+        long mod = value % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+}
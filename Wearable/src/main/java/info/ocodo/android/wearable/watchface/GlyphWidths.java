@@ -0,0 +1,47 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Digit advance widths cached for one paint, so clock text in a char[] can be measured
+ * without allocating. Re-measured whenever the paint's text size or typeface changes.
+ */
+class GlyphWidths {
+
+    private static final char[] DIGITS = "0123456789".toCharArray();
+
+    private final Paint mPaint;
+    private final float[] mDigitWidths = new float[DIGITS.length];
+    private float mTextSize = -1;
+    private Typeface mTypeface;
+
+    GlyphWidths(Paint paint) {
+        mPaint = paint;
+    }
+
+    float measure(char[] text, int count) {
+        refresh();
+        float width = 0;
+        for (int i = 0; i < count; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                width += mDigitWidths[c - '0'];
+            } else {
+                width += mPaint.measureText(text, i, 1);
+            }
+        }
+        return width;
+    }
+
+    private void refresh() {
+        if (mPaint.getTextSize() == mTextSize && mPaint.getTypeface() == mTypeface) {
+            return;
+        }
+        mTextSize = mPaint.getTextSize();
+        mTypeface = mPaint.getTypeface();
+        for (int digit = 0; digit < DIGITS.length; digit++) {
+            mDigitWidths[digit] = mPaint.measureText(DIGITS, digit, 1);
+        }
+    }
+}
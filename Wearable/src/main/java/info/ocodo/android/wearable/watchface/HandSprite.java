@@ -0,0 +1,117 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * A clock hand pre-rendered into a bitmap with its shadow baked in.
+ *
+ * The hand is stroked once along the 12 o'clock axis with the (shadowed) hand paint and
+ * afterwards only drawn as a rotated bitmap, so the shadow blur is paid once per surface
+ * size instead of once per hand per frame.
+ */
+class HandSprite {
+
+    private final Matrix mMatrix = new Matrix();
+    private final Paint mBitmapPaint;
+    private final Rect mLastBounds = new Rect();
+    private Bitmap mBitmap;
+    private float mStartOffset;
+    private float mStopOffset;
+    private float mShadowMargin;
+    private float mExtent;
+    private float mPivotX;
+    private float mPivotY;
+
+    HandSprite() {
+        mBitmapPaint = new Paint();
+        mBitmapPaint.setAntiAlias(true);
+        mBitmapPaint.setFilterBitmap(true);
+    }
+
+    /**
+     * Room needed around the stroke for a shadow layer of the given radius and offset.
+     */
+    static float shadowMargin(float shadowRadius, float dx, float dy) {
+        return 2 * shadowRadius + Math.max(Math.abs(dx), Math.abs(dy)) + 1;
+    }
+
+    /**
+     * Offsets are measured from the watch centre along the y axis, so a hand reaching up
+     * to 12 o'clock has a negative stop offset.
+     */
+    void setGeometry(float startOffset, float stopOffset, float shadowMargin) {
+        mStartOffset = startOffset;
+        mStopOffset = stopOffset;
+        mShadowMargin = shadowMargin;
+        invalidate();
+    }
+
+    void invalidate() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mLastBounds.setEmpty();
+    }
+
+    void draw(Canvas canvas, float rotation, float centerX, float centerY, Paint handPaint) {
+        if (mBitmap == null) {
+            render(handPaint);
+        }
+        mMatrix.setTranslate(centerX - mPivotX, centerY - mPivotY);
+        mMatrix.postRotate(rotation, centerX, centerY);
+        canvas.drawBitmap(mBitmap, mMatrix, mBitmapPaint);
+        getBounds(rotation, centerX, centerY, mLastBounds);
+    }
+
+    /**
+     * Screen area the sprite covers at the given rotation, or empty before the first draw.
+     */
+    void getBounds(float rotation, float centerX, float centerY, Rect bounds) {
+        if (mBitmap == null) {
+            bounds.setEmpty();
+            return;
+        }
+        double radians = Math.toRadians(rotation);
+        float sin = (float) Math.sin(radians);
+        float cos = (float) Math.cos(radians);
+        float startX = centerX - mStartOffset * sin;
+        float startY = centerY + mStartOffset * cos;
+        float stopX = centerX - mStopOffset * sin;
+        float stopY = centerY + mStopOffset * cos;
+        bounds.set(
+                (int) Math.floor(Math.min(startX, stopX) - mExtent) - 1,
+                (int) Math.floor(Math.min(startY, stopY) - mExtent) - 1,
+                (int) Math.ceil(Math.max(startX, stopX) + mExtent) + 1,
+                (int) Math.ceil(Math.max(startY, stopY) + mExtent) + 1);
+    }
+
+    /**
+     * Bounds of the most recent {@link #draw}, i.e. what a partial redraw has to erase.
+     */
+    Rect getLastBounds() {
+        return mLastBounds;
+    }
+
+    private void render(Paint handPaint) {
+        mExtent = handPaint.getStrokeWidth() / 2f + mShadowMargin;
+        float top = Math.min(mStartOffset, mStopOffset) - mExtent;
+        float bottom = Math.max(mStartOffset, mStopOffset) + mExtent;
+        int width = Math.max(1, (int) Math.ceil(mExtent * 2));
+        int height = Math.max(1, (int) Math.ceil(bottom - top));
+
+        mPivotX = width / 2f;
+        mPivotY = -top;
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        new Canvas(mBitmap).drawLine(
+                mPivotX,
+                mPivotY + mStartOffset,
+                mPivotX,
+                mPivotY + mStopOffset,
+                handPaint);
+    }
+}
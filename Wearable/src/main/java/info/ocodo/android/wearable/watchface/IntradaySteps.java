@@ -0,0 +1,223 @@
+package info.ocodo.android.wearable.watchface;
+
+/**
+ * Today's steps, minute by minute.
+ *
+ * One int per minute of the local day, filled by differencing successive daily totals:
+ * whatever the total grew by since the last one lands in the minute it was seen, and a
+ * total that was corrected downwards takes the difference back out of the latest minutes.
+ * The array is indexed by minute of the day rather than used as a rolling ring, because
+ * faces chart the calendar day; a new day clears it. Only the minutes a total was seen in
+ * get steps, so after a gap between totals everything walked in it lands in one minute.
+ *
+ * Quarter hour sums and their maximum are kept up to date as totals arrive, so the
+ * sparkline's scale costs nothing per draw. Queries never allocate, so faces can call
+ * them while drawing.
+ */
+class IntradaySteps {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int BUCKET_MINUTES = 15;
+
+    private static final int BUCKETS = MINUTES_PER_DAY / BUCKET_MINUTES;
+
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long DAY_MS = MINUTES_PER_DAY * MINUTE_MS;
+
+    private final int[] mMinutes = new int[MINUTES_PER_DAY];
+    private final int[] mBuckets = new int[BUCKETS];
+    private int mMaxBucket;
+    private long mDay = Long.MIN_VALUE;
+    private int mLastTotal = -1;
+    private int mLastMinute;
+    private int mCorrections;
+
+    /**
+     * Adds the change since the previous total to the minute containing
+     * {@code localMillis}, or takes a drop back out of the latest minutes. The first total
+     * seen, or the first of a new day, only becomes the baseline when nothing is known
+     * about how it was spread.
+     */
+    void record(int total, long localMillis) {
+        rollTo(localMillis);
+        int minute = (int) (localMillis - mDay * DAY_MS) / (int) MINUTE_MS;
+        if (mLastTotal >= 0) {
+            if (total > mLastTotal) {
+                mMinutes[minute] += total - mLastTotal;
+                int bucket = minute / BUCKET_MINUTES;
+                mBuckets[bucket] += total - mLastTotal;
+                mMaxBucket = Math.max(mMaxBucket, mBuckets[bucket]);
+            } else if (total < mLastTotal) {
+                takeBack(mLastTotal - total, minute);
+            }
+        }
+        mLastTotal = total;
+        mLastMinute = minute;
+    }
+
+    /**
+     * Starts a new day if {@code localMillis} is past the one held, so readers see an
+     * empty day from midnight on even before the first total of it arrives.
+     */
+    void rollTo(long localMillis) {
+        long day = floorDiv(localMillis, DAY_MS);
+        if (day != mDay) {
+            boolean nextDay = day == mDay + 1;
+            clear(day);
+            if (nextDay) {
+                // A total read just after midnight holds only today's steps.
+                mLastTotal = 0;
+            }
+        }
+    }
+
+    long getDay() {
+        return mDay;
+    }
+
+    /**
+     * The minute of the day the latest total was recorded in.
+     */
+    int getLastMinute() {
+        return mLastMinute;
+    }
+
+    /**
+     * Counts the downward corrections so far, for readers that only redraw the minutes
+     * after the ones they already drew: a correction can reach further back.
+     */
+    int getCorrections() {
+        return mCorrections;
+    }
+
+    int getMinute(int minuteOfDay) {
+        return mMinutes[minuteOfDay];
+    }
+
+    /**
+     * Steps in minutes {@code from} (inclusive) to {@code to} (exclusive) of the day.
+     */
+    int sum(int from, int to) {
+        int sum = 0;
+        for (int i = Math.max(from, 0); i < Math.min(to, MINUTES_PER_DAY); i++) {
+            sum += mMinutes[i];
+        }
+        return sum;
+    }
+
+    int getHour(int hourOfDay) {
+        return sum(hourOfDay * 60, hourOfDay * 60 + 60);
+    }
+
+    /**
+     * Steps in the {@code minutes} minutes up to and including the latest one, e.g. 15
+     * for a rolling quarter hour.
+     */
+    int getRolling(int minutes) {
+        return sum(mLastMinute + 1 - minutes, mLastMinute + 1);
+    }
+
+    /**
+     * Steps in the {@code bucket}th {@link #BUCKET_MINUTES} of the day.
+     */
+    int getBucket(int bucket) {
+        return mBuckets[bucket];
+    }
+
+    /**
+     * The largest {@link #getBucket bucket} today.
+     */
+    int getMaxBucket() {
+        return mMaxBucket;
+    }
+
+    /**
+     * Packs the day as "day;lastTotal;lastMinute;minute:steps,..." with empty minutes left
+     * out, for persisting.
+     */
+    String encode() {
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(mDay).append(';').append(mLastTotal).append(';').append(mLastMinute).append(';');
+        for (int i = 0; i < MINUTES_PER_DAY; i++) {
+            if (mMinutes[i] != 0) {
+                builder.append(i).append(':').append(mMinutes[i]).append(',');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Restores what {@link #encode()} produced, if it was for local day {@code day}.
+     *
+     * @return false when {@code encoded} is from another day or unreadable
+     */
+    boolean decode(String encoded, long day) {
+        if (encoded == null) {
+            return false;
+        }
+        String[] parts = encoded.split(";", -1);
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            if (Long.parseLong(parts[0]) != day) {
+                return false;
+            }
+            clear(day);
+            mLastTotal = Integer.parseInt(parts[1]);
+            mLastMinute = Integer.parseInt(parts[2]);
+            for (String entry : parts[3].split(",")) {
+                int colon = entry.indexOf(':');
+                if (colon > 0) {
+                    mMinutes[Integer.parseInt(entry.substring(0, colon))] =
+                            Integer.parseInt(entry.substring(colon + 1));
+                }
+            }
+            sumBuckets();
+            return true;
+        } catch (RuntimeException e) {
+            clear(Long.MIN_VALUE);
+            return false;
+        }
+    }
+
+    /**
+     * Removes {@code steps} from the minutes up to and including {@code minute}, latest
+     * first. Whatever is left over was counted before the baseline and is ignored.
+     */
+    private void takeBack(int steps, int minute) {
+        mCorrections++;
+        for (int i = minute; i >= 0 && steps > 0; i--) {
+            int taken = Math.min(mMinutes[i], steps);
+            mMinutes[i] -= taken;
+            steps -= taken;
+        }
+        sumBuckets();
+    }
+
+    private void sumBuckets() {
+        mMaxBucket = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            mBuckets[bucket] = sum(bucket * BUCKET_MINUTES, (bucket + 1) * BUCKET_MINUTES);
+            mMaxBucket = Math.max(mMaxBucket, mBuckets[bucket]);
+        }
+    }
+
+    private void clear(long day) {
+        mDay = day;
+        mLastTotal = -1;
+        mLastMinute = 0;
+        for (int i = 0; i < MINUTES_PER_DAY; i++) {
+            mMinutes[i] = 0;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            mBuckets[i] = 0;
+        }
+        mMaxBucket = 0;
+    }
+
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        return value % divisor < 0 ? quotient - 1 : quotient;
+    }
+}
@@ -0,0 +1,57 @@
+package info.ocodo.android.wearable.watchface;
+
+/**
+ * Running mean and variance of the angular step between consecutive hand positions.
+ *
+ * A perfectly even sweep has zero step variance at a fixed frame rate, so the variance
+ * is a direct measure of visible jitter. Steps are taken modulo a full turn, so passing
+ * twelve o'clock does not count as a jump.
+ */
+class JitterMeter {
+
+    private float mLastAngle = Float.NaN;
+    private long mCount;
+    private double mMean;
+    private double mSquaredDeviations;
+
+    void add(float angle) {
+        if (!Float.isNaN(mLastAngle)) {
+            float step = angle - mLastAngle;
+            if (step < 0) {
+                step += 360f;
+            }
+            mCount++;
+            double delta = step - mMean;
+            mMean += delta / mCount;
+            mSquaredDeviations += delta * (step - mMean);
+        }
+        mLastAngle = angle;
+    }
+
+    /**
+     * Starts a new series, e.g. after the frame rate changed or frames were held.
+     */
+    void reset() {
+        mLastAngle = Float.NaN;
+        mCount = 0;
+        mMean = 0;
+        mSquaredDeviations = 0;
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    double getMeanStep() {
+        return mMean;
+    }
+
+    double getStepVariance() {
+        return mCount < 2 ? 0 : mSquaredDeviations / (mCount - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "step " + mMean + " deg, variance " + getStepVariance() + " over " + mCount;
+    }
+}
@@ -0,0 +1,203 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Composes a watch face from named layers, each declaring how often it changes.
+ *
+ * Layers below the first {@link Cadence#PER_SECOND} or {@link Cadence#PER_FRAME} layer
+ * are cached. Adjacent cached layers that change together form a run (static layers ride
+ * along with the per-day ones), and each run's bitmap holds its own layers stacked on the
+ * bitmap of the run below, so the top run is the whole cache and a frame costs a single
+ * blit. A run is only rebuilt when one of its layers crosses its cadence boundary (a new
+ * day or minute in local time) or is invalidated by name, or when a run below it was
+ * rebuilt. Everything from the first per-second or per-frame layer upwards is drawn
+ * directly on every frame, so stacking order is kept. In ambient mode frames are a minute
+ * apart anyway, so layers are drawn directly and no cache is kept.
+ *
+ * Local time comes from the engine's {@link TimeDecomposer}, whose zone offset is
+ * already cached until the next transition; {@link LayerEpochs} decides what is stale.
+ */
+class LayerCompositor {
+
+    enum Cadence {
+        STATIC, PER_DAY, PER_MINUTE, PER_SECOND, PER_FRAME
+    }
+
+    interface Renderer {
+        void render(Canvas canvas);
+    }
+
+    private static class Layer {
+        final String name;
+        final Cadence cadence;
+        final Renderer renderer;
+
+        Layer(String name, Cadence cadence, Renderer renderer) {
+            this.name = name;
+            this.cadence = cadence;
+            this.renderer = renderer;
+        }
+    }
+
+    /**
+     * Cached layers {@code from} (inclusive) to {@code to} (exclusive), and the bitmap
+     * holding them on top of every run below.
+     */
+    private static class Run {
+        final Cadence cadence;
+        final int from;
+        int to;
+        Bitmap bitmap;
+        Canvas canvas;
+
+        Run(Cadence cadence, int from) {
+            this.cadence = cadence;
+            this.from = from;
+            this.to = from;
+        }
+
+        void release() {
+            if (bitmap != null) {
+                bitmap.recycle();
+                bitmap = null;
+                canvas = null;
+            }
+        }
+    }
+
+    private final TimeDecomposer mTime;
+    private final List<Layer> mLayers = new ArrayList<Layer>();
+    private final List<Run> mRuns = new ArrayList<Run>();
+    private final LayerEpochs mEpochs = new LayerEpochs();
+    private int mCachedLayerCount;
+    private int mWidth;
+    private int mHeight;
+
+    LayerCompositor(TimeDecomposer time) {
+        mTime = time;
+    }
+
+    LayerCompositor add(String name, Cadence cadence, Renderer renderer) {
+        mLayers.add(new Layer(name, cadence, renderer));
+        mEpochs.add(cadence);
+        if (mCachedLayerCount == mLayers.size() - 1
+                && cadence != Cadence.PER_SECOND && cadence != Cadence.PER_FRAME) {
+            Cadence runCadence = cadence == Cadence.STATIC ? Cadence.PER_DAY : cadence;
+            Run top = mRuns.isEmpty() ? null : mRuns.get(mRuns.size() - 1);
+            if (top == null || top.cadence != runCadence) {
+                top = new Run(runCadence, mCachedLayerCount);
+                mRuns.add(top);
+            }
+            mCachedLayerCount++;
+            top.to = mCachedLayerCount;
+        }
+        return this;
+    }
+
+    void setSurfaceSize(int width, int height) {
+        if (width != mWidth || height != mHeight) {
+            mWidth = width;
+            mHeight = height;
+            release();
+        }
+    }
+
+    /**
+     * Marks a layer as changed outside its cadence, e.g. when a new step count arrives.
+     */
+    void invalidate(String name) {
+        for (int i = 0; i < mLayers.size(); i++) {
+            if (mLayers.get(i).name.equals(name)) {
+                mEpochs.invalidate(i);
+            }
+        }
+    }
+
+    /**
+     * Marks every layer as changed, e.g. from the timezone receiver, since day and minute
+     * boundaries follow local time.
+     */
+    void invalidate() {
+        mEpochs.invalidate();
+    }
+
+    void draw(Canvas canvas, long now, boolean ambient) {
+        if (ambient || mWidth <= 0 || mHeight <= 0) {
+            release();
+            for (int i = 0; i < mLayers.size(); i++) {
+                mLayers.get(i).renderer.render(canvas);
+            }
+            return;
+        }
+
+        long localMillis = mTime.toLocalMillis(now);
+        if (!mRuns.isEmpty()) {
+            canvas.drawBitmap(updateCache(localMillis), 0, 0, null);
+        }
+        for (int i = mCachedLayerCount; i < mLayers.size(); i++) {
+            mLayers.get(i).renderer.render(canvas);
+        }
+        mEpochs.markDrawn(mCachedLayerCount, mLayers.size(), localMillis);
+    }
+
+    void release() {
+        for (int i = 0; i < mRuns.size(); i++) {
+            mRuns.get(i).release();
+        }
+        invalidate();
+    }
+
+    /**
+     * True while every layer but the per-frame ones still matches {@code now}, so a frame
+     * only has to redraw the per-frame layers, e.g. within a dirty region.
+     */
+    boolean isCurrent(long now, boolean ambient) {
+        if (ambient) {
+            return false;
+        }
+        long localMillis = mTime.toLocalMillis(now);
+        for (int i = 0; i < mLayers.size(); i++) {
+            if (mLayers.get(i).cadence != Cadence.PER_FRAME && mEpochs.isStale(i, localMillis)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the lowest stale run and every run above it.
+     *
+     * @return the top run's bitmap, holding every cached layer
+     */
+    private Bitmap updateCache(long localMillis) {
+        boolean rebuild = false;
+        Bitmap below = null;
+        for (int i = 0; i < mRuns.size(); i++) {
+            Run run = mRuns.get(i);
+            rebuild = rebuild || mEpochs.isStale(run.from, run.to, localMillis);
+            if (rebuild) {
+                if (run.bitmap == null) {
+                    run.bitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+                    run.canvas = new Canvas(run.bitmap);
+                }
+                run.canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                if (below != null) {
+                    run.canvas.drawBitmap(below, 0, 0, null);
+                }
+                for (int layer = run.from; layer < run.to; layer++) {
+                    mLayers.get(layer).renderer.render(run.canvas);
+                }
+                mEpochs.markDrawn(run.from, run.to, localMillis);
+            }
+            below = run.bitmap;
+        }
+        return below;
+    }
+}
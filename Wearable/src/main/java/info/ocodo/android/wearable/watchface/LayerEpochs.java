@@ -0,0 +1,91 @@
+package info.ocodo.android.wearable.watchface;
+
+/**
+ * The local day, minute or second each layer of a {@link LayerCompositor} was last drawn
+ * in, and so whether it has moved on since.
+ *
+ * This is the compositor's whole redraw decision; it is kept apart from the bitmaps so
+ * it gives the same answers whether or not a cache could be allocated.
+ */
+class LayerEpochs {
+
+    private static final long SECOND_MS = 1000L;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long DAY_MS = 24 * 60 * MINUTE_MS;
+
+    private static final long NOT_DRAWN = Long.MIN_VALUE;
+
+    private LayerCompositor.Cadence[] mCadences = new LayerCompositor.Cadence[0];
+    private long[] mDrawn = new long[0];
+
+    /**
+     * @return the index of the new layer
+     */
+    int add(LayerCompositor.Cadence cadence) {
+        int index = mCadences.length;
+        LayerCompositor.Cadence[] cadences = new LayerCompositor.Cadence[index + 1];
+        long[] drawn = new long[index + 1];
+        System.arraycopy(mCadences, 0, cadences, 0, index);
+        System.arraycopy(mDrawn, 0, drawn, 0, index);
+        cadences[index] = cadence;
+        drawn[index] = NOT_DRAWN;
+        mCadences = cadences;
+        mDrawn = drawn;
+        return index;
+    }
+
+    /**
+     * Per-frame layers are always stale.
+     */
+    boolean isStale(int index, long localMillis) {
+        return mCadences[index] == LayerCompositor.Cadence.PER_FRAME
+                || mDrawn[index] == NOT_DRAWN
+                || mDrawn[index] != epoch(mCadences[index], localMillis);
+    }
+
+    /**
+     * True if any layer from {@code from} (inclusive) to {@code to} (exclusive) is stale.
+     */
+    boolean isStale(int from, int to, long localMillis) {
+        for (int i = from; i < to; i++) {
+            if (isStale(i, localMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void markDrawn(int from, int to, long localMillis) {
+        for (int i = from; i < to; i++) {
+            mDrawn[i] = epoch(mCadences[i], localMillis);
+        }
+    }
+
+    void invalidate(int index) {
+        mDrawn[index] = NOT_DRAWN;
+    }
+
+    void invalidate() {
+        for (int i = 0; i < mDrawn.length; i++) {
+            mDrawn[i] = NOT_DRAWN;
+        }
+    }
+
+    private static long epoch(LayerCompositor.Cadence cadence, long localMillis) {
+        switch (cadence) {
+            case PER_DAY:
+                return floorDiv(localMillis, DAY_MS);
+            case PER_MINUTE:
+                return floorDiv(localMillis, MINUTE_MS);
+            case PER_SECOND:
+                return floorDiv(localMillis, SECOND_MS);
+            default:
+                return 0;
+        }
+    }
+
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        return value % divisor < 0 ? quotient - 1 : quotient;
+    }
+}
@@ -11,38 +11,18 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
+import android.os.Looper;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.format.DateFormat;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.PendingResult;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.common.api.Status;
-import com.google.android.gms.fitness.Fitness;
-import com.google.android.gms.fitness.FitnessStatusCodes;
-import com.google.android.gms.fitness.data.DataPoint;
-import com.google.android.gms.fitness.data.DataType;
-import com.google.android.gms.fitness.data.Field;
-import com.google.android.gms.fitness.result.DailyTotalResult;
-
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
-import java.util.TimeZone;
-
+import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.activePaint;
+import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawTicks;
 import static info.ocodo.android.wearable.watchface.R.dimen;
 import static info.ocodo.android.wearable.watchface.R.string;
-import static java.lang.String.format;
 
 public class OcodoWatchFaceOne extends CanvasWatchFaceService {
 
@@ -53,10 +33,7 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
         return new Engine();
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine implements
-            GoogleApiClient.ConnectionCallbacks,
-            GoogleApiClient.OnConnectionFailedListener,
-            ResultCallback<DailyTotalResult> {
+    private class Engine extends CanvasWatchFaceService.Engine {
 
         private static final float HOUR_STROKE_WIDTH = 10f;
         private static final float MINUTE_STROKE_WIDTH = 4f;
@@ -64,24 +41,28 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
         private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 80f;
         private static final int SHADOW_RADIUS = 10;
         private static final String COLON_STRING = ":";
-        private static final int MSG_UPDATE_TIME = 0;
+        private static final int INTERACTIVE_FRAMES_PER_SECOND = 11;
+        private static final long AMBIENT_FRAME_MS = 60 * 1000L;
+        private static final float SPARKLINE_GAP = 10f;
+        private static final int SPARKLINE_HEIGHT = 30;
 
-        private final Handler mUpdateTimeHandler = new Handler() {
+        private final Clock mClock = OcodoWatchFaceUtils.getClock();
+        private final FrameScheduler mFrameScheduler = new FrameScheduler(mClock, new FrameScheduler.Callback() {
             @Override
-            public void handleMessage(Message message) {
-                switch (message.what) {
-                    case MSG_UPDATE_TIME:
-                        if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                            Log.v(TAG, "updating time");
-                        }
-                        invalidate();
-                        if (shouldUpdateTimeHandlerBeRunning()) {
-                            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, 90L);
-                        }
-                        break;
+            public boolean needsFrame(long frameTimeMillis) {
+                return true;
+            }
+
+            @Override
+            public void onFrame(long frameTimeMillis) {
+                if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log.v(TAG, "updating time");
+                }
+                if (!drawDirtyRegion(frameTimeMillis)) {
+                    invalidate();
                 }
             }
-        };
+        }, INTERACTIVE_FRAMES_PER_SECOND);
         private int mWidth;
         private int mHeight;
         private int BACKGROUND_COLOR = Color.parseColor("#191620");
@@ -112,13 +93,31 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
         private Paint mSecondHandPaint;
         private Paint mTickAndCirclePaint;
         private Paint mHourTickPaint;
+        private PaintSet mHourHandPaints;
+        private PaintSet mMinuteHandPaints;
+        private PaintSet mSecondHandPaints;
+        private PaintSet mTickAndCirclePaints;
+        private PaintSet mHourTickPaints;
+        private PaintSet mHourPaints;
+        private PaintSet mMinutePaints;
+        private PaintSet mSecondPaints;
+        private PaintSet mAmPmPaints;
+        private PaintSet mColonPaints;
+        private PaintSet mStepCountPaints;
         private float mColonWidth;
-        private Calendar mCalendar;
+        private float mColonX;
+        private final TimeDecomposer mTime = new TimeDecomposer(mClock.getTimeZone());
+        private FramePrerenderer mAmbientFrame;
+        private SystemSettingsObserver mSettings;
 
         private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mAmbientFrame.invalidate();
+                mTime.setTimeZone(mClock.getTimeZone());
+                mFrameScheduler.resetTimebase();
+                mCompositor.invalidate();
+                mDateText.invalidate();
                 invalidate();
             }
         };
@@ -129,13 +128,32 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
         private float mLineHeight;
         private float mOcodoWidth;
         private float mOcodoCentering;
-        private String mAmString;
-        private String mPmString;
+        private TimeTextFormatter mTimeText;
+        private GlyphWidths mHourWidths;
+        private GlyphWidths mMinuteWidths;
         private String mOcodoText;
         private boolean mLowBitAmbient;
-        private GoogleApiClient mGoogleApiClient;
-        private boolean mStepsRequested;
-        private int mStepsTotal = 0;
+        private DialLayer mDialLayer;
+        private float[] mMinuteTicks;
+        private float[] mHourTicks;
+        private static final String STEPS_LAYER = "steps";
+        private LayerCompositor mCompositor;
+        private final DateTextCache mDateText = new DateTextCache("dd MMM");
+        private final Rect mDirtyRegion = new Rect();
+        private final HandSprite mHourHandSprite = new HandSprite();
+        private final HandSprite mMinuteHandSprite = new HandSprite();
+        private final HandSprite mSecondHandSprite = new HandSprite();
+        private StepRepository mStepRepository;
+        private final StepRepository.Listener mStepsListener = new StepRepository.Listener() {
+            @Override
+            public void onStepsChanged(int steps) {
+                if (mStepText.setSteps(steps)) {
+                    mCompositor.invalidate(STEPS_LAYER);
+                }
+            }
+        };
+        private StepTextCache mStepText;
+        private final StepSparkline mStepSparkline = new StepSparkline();
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -183,16 +201,9 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
             mHourTickPaint.setStyle(Paint.Style.STROKE);
             mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
 
-            normalTypeface = Typeface.createFromAsset(getAssets(), "gothamrnd-light.ttf");
+            normalTypeface = TypefaceCache.get(getAssets(), "gothamrnd-light.ttf");
 
-            mStepsRequested = false;
-            mGoogleApiClient = new GoogleApiClient.Builder(OcodoWatchFaceOne.this)
-                    .addConnectionCallbacks(this)
-                    .addOnConnectionFailedListener(this)
-                    .addApi(Fitness.HISTORY_API)
-                    .addApi(Fitness.RECORDING_API)
-                    .useDefaultAccount()
-                    .build();
+            mStepRepository = StepRepository.get(OcodoWatchFaceOne.this);
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(OcodoWatchFaceOne.this)
                     .setStatusBarGravity(Gravity.CENTER)
@@ -205,23 +216,111 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
 
             mYOffset = resources.getDimension(dimen.y_offset);
             mLineHeight = resources.getDimension(dimen.line_height);
-            mAmString = resources.getString(string.am_text);
-            mPmString = resources.getString(string.pm_text);
+            mTimeText = new TimeTextFormatter(resources.getString(string.am_text),
+                    resources.getString(string.pm_text));
+            mStepText = new StepTextCache("###,###", resources.getString(string.steps_text));
 
             mHourPaint = createTextPaint(TEXT_HOURS_MINS_COLOR, normalTypeface);
             mMinutePaint = createTextPaint(TEXT_HOURS_MINS_COLOR, normalTypeface);
+            mHourWidths = new GlyphWidths(mHourPaint);
+            mMinuteWidths = new GlyphWidths(mMinutePaint);
             mSecondPaint = createTextPaint(TEXT_SECONDS_COLOR, normalTypeface);
             mAmPmPaint = createTextPaint(TEXT_AM_PM_COLOR, normalTypeface);
             mColonPaint = createTextPaint(TEXT_COLON_COLOR, normalTypeface);
             mStepCountPaint = createTextPaint(TEXT_STEP_COUNT_COLOR, normalTypeface);
             mOcodoTextPaint = createTextPaint(TEXT_COLON_COLOR, normalTypeface);
             mOcodoText = resources.getString(string.ocodo_one_logo_text);
-            mCalendar = Calendar.getInstance();
+
+            mSettings = new SystemSettingsObserver(OcodoWatchFaceOne.this, new SystemSettingsObserver.Listener() {
+                @Override
+                public void onSettingsChanged(SystemSettingsObserver settings) {
+                    mAmbientFrame.invalidate();
+                    mDateText.setLocale(settings.getLocale());
+                    mStepText.setLocale(settings.getLocale());
+                    mCompositor.invalidate();
+                    invalidate();
+                }
+            });
+
+            // Ambient frames only change with the minute, so each wakeup renders the next
+            // one after posting its own and the following onTimeTick is a single blit.
+            mAmbientFrame = new FramePrerenderer(Looper.myLooper(), AMBIENT_FRAME_MS, new FramePrerenderer.Renderer() {
+                @Override
+                public void render(Canvas canvas, long timeMillis) {
+                    mTime.update(timeMillis);
+                    mCompositor.draw(canvas, timeMillis, true);
+                }
+            });
+
+            createPaintSets();
+            selectPaints();
+            mDialLayer = new DialLayer(new DialLayer.Painter() {
+                @Override
+                public void paintDial(Canvas canvas) {
+                    drawDial(canvas);
+                }
+            });
+
+            mCompositor = new LayerCompositor(mTime)
+                    .add("dial", LayerCompositor.Cadence.STATIC, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            mDialLayer.draw(canvas, isInAmbientMode());
+                        }
+                    })
+                    .add("date", LayerCompositor.Cadence.PER_DAY, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawDate(canvas);
+                        }
+                    })
+                    .add(STEPS_LAYER, LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSteps(canvas);
+                        }
+                    })
+                    .add("time", LayerCompositor.Cadence.PER_SECOND, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawTime(canvas);
+                        }
+                    })
+                    .add("colon", LayerCompositor.Cadence.PER_FRAME, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawColon(canvas);
+                        }
+                    })
+                    .add("hands", LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawHourAndMinuteHands(canvas);
+                        }
+                    })
+                    .add("second hand", LayerCompositor.Cadence.PER_FRAME, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSecondHand(canvas);
+                        }
+                    });
+
+            if (mStepRepository.hasSteps()) {
+                mStepText.setSteps(mStepRepository.getSteps());
+            }
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mFrameScheduler.stop();
+            mStepRepository.removeListener(mStepsListener);
+            mAmbientFrame.release();
+            mStepSparkline.release();
+            mDialLayer.release();
+            mCompositor.release();
+            mHourHandSprite.invalidate();
+            mMinuteHandSprite.invalidate();
+            mSecondHandSprite.invalidate();
             super.onDestroy();
         }
 
@@ -241,17 +340,19 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
             super.onVisibilityChanged(visible);
 
             if (visible) {
-                mGoogleApiClient.connect();
+                mStepRepository.addListener(mStepsListener);
 
                 registerReceiver();
+                mSettings.register();
 
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mAmbientFrame.invalidate();
+                mTime.setTimeZone(mClock.getTimeZone());
+                mCompositor.invalidate();
+                mDateText.invalidate();
             } else {
                 unregisterReceiver();
-
-                if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
-                    mGoogleApiClient.disconnect();
-                }
+                mSettings.unregister();
+                mStepRepository.removeListener(mStepsListener);
             }
 
             updateTimer();
@@ -264,6 +365,7 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
             }
             mRegisteredReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             OcodoWatchFaceOne.this.registerReceiver(mReceiver, filter);
         }
 
@@ -293,17 +395,20 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
             float amPmSize = resources.getDimension(isRound
                     ? dimen.am_pm_size_round : dimen.am_pm_size);
 
-            Paint mHourPaint = this.mHourPaint;
-            mHourPaint.setTextSize(textSize);
-            mMinutePaint.setTextSize(textSize);
-            mSecondPaint.setTextSize(resources.getDimension(dimen.seconds_text_size));
-            mAmPmPaint.setTextSize(amPmSize);
-            mColonPaint.setTextSize(resources.getDimension(dimen.colon_text_size));
+            mHourPaints.setTextSize(textSize);
+            mMinutePaints.setTextSize(textSize);
+            mSecondPaints.setTextSize(resources.getDimension(dimen.seconds_text_size));
+            mAmPmPaints.setTextSize(amPmSize);
+            mColonPaints.setTextSize(resources.getDimension(dimen.colon_text_size));
             mOcodoTextPaint.setTextSize(resources.getDimension(dimen.ocodo_logo_text_size));
-            mStepCountPaint.setTextSize(resources.getDimension(dimen.steps_or_distance_text_size));
+            mStepCountPaints.setTextSize(resources.getDimension(dimen.steps_or_distance_text_size));
             mColonWidth = mColonPaint.measureText(COLON_STRING);
             mOcodoWidth = mOcodoTextPaint.measureText(mOcodoText);
             mOcodoCentering = (mWidth / 2f) - (mOcodoWidth / 2);
+            mAmbientFrame.invalidate();
+            mDialLayer.invalidate();
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -315,6 +420,11 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
                 Log.d(TAG, "onPropertiesChanged: burn-in protection = " + burnInProtection
                         + ", low-bit ambient = " + mLowBitAmbient);
             }
+            mAmbientFrame.invalidate();
+            selectPaints();
+            mDialLayer.setLowBitAmbient(mLowBitAmbient);
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -324,7 +434,7 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
                 Log.d(TAG, "onTimeTick: ambient = " + isInAmbientMode());
             }
 
-            getTotalSteps();
+            mStepRepository.refresh();
             invalidate();
         }
 
@@ -335,258 +445,220 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
                 Log.d(TAG, "onAmbientModeChanged: " + inAmbientMode);
             }
 
-            if (mLowBitAmbient) {
-                boolean antiAlias = !inAmbientMode;
-                mHourPaint.setAntiAlias(antiAlias);
-                mMinutePaint.setAntiAlias(antiAlias);
-                mSecondPaint.setAntiAlias(antiAlias);
-                mAmPmPaint.setAntiAlias(antiAlias);
-                mColonPaint.setAntiAlias(antiAlias);
-                mStepCountPaint.setAntiAlias(antiAlias);
+            if (inAmbientMode) {
+                mAmbientFrame.invalidate();
+            } else {
+                // Interactive frames are drawn directly; the buffer comes back with the
+                // next ambient frame.
+                mAmbientFrame.releaseBuffer();
             }
+            selectPaints();
+            prepareDial();
             invalidate();
 
             updateTimer();
         }
 
-        private String formatTwoDigitNumber(int hour) {
-            return format("%02d", hour);
+        private void createPaintSets() {
+            activePaint(mHourHandPaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mMinuteHandPaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mSecondHandPaint, TEXT_STEP_COUNT_COLOR, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mTickAndCirclePaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mHourTickPaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+
+            mHourHandPaints = PaintSet.forStroke(mHourHandPaint, TEXT_COLON_COLOR);
+            mMinuteHandPaints = PaintSet.forStroke(mMinuteHandPaint, TEXT_COLON_COLOR);
+            mSecondHandPaints = PaintSet.forStroke(mSecondHandPaint, TEXT_STEP_COUNT_COLOR);
+            mTickAndCirclePaints = PaintSet.forStroke(mTickAndCirclePaint, TEXT_COLON_COLOR);
+            mHourTickPaints = PaintSet.forStroke(mHourTickPaint, TEXT_COLON_COLOR);
+            mHourPaints = PaintSet.forText(mHourPaint);
+            mMinutePaints = PaintSet.forText(mMinutePaint);
+            mSecondPaints = PaintSet.forText(mSecondPaint);
+            mAmPmPaints = PaintSet.forText(mAmPmPaint);
+            mColonPaints = PaintSet.forText(mColonPaint);
+            mStepCountPaints = PaintSet.forText(mStepCountPaint);
         }
 
-        private String getAmPmString(int amPm) {
-            return amPm == Calendar.AM ? mAmString : mPmString;
+        /**
+         * Points the paint fields at the variants for the current mode. Called when the mode
+         * or the low-bit property changes, never while drawing a frame.
+         */
+        private void selectPaints() {
+            boolean ambient = isInAmbientMode();
+            mHourHandPaint = mHourHandPaints.select(ambient, mLowBitAmbient);
+            mMinuteHandPaint = mMinuteHandPaints.select(ambient, mLowBitAmbient);
+            mSecondHandPaint = mSecondHandPaints.select(ambient, mLowBitAmbient);
+            mTickAndCirclePaint = mTickAndCirclePaints.select(ambient, mLowBitAmbient);
+            mHourTickPaint = mHourTickPaints.select(ambient, mLowBitAmbient);
+            mHourPaint = mHourPaints.select(ambient, mLowBitAmbient);
+            mMinutePaint = mMinutePaints.select(ambient, mLowBitAmbient);
+            mSecondPaint = mSecondPaints.select(ambient, mLowBitAmbient);
+            mAmPmPaint = mAmPmPaints.select(ambient, mLowBitAmbient);
+            mColonPaint = mColonPaints.select(ambient, mLowBitAmbient);
+            mStepCountPaint = mStepCountPaints.select(ambient, mLowBitAmbient);
         }
 
-        private void updateWatchHandStyle() {
-            if (isInAmbientMode()) {
-                mHourHandPaint.setColor(TEXT_COLON_COLOR);
-                mMinuteHandPaint.setColor(TEXT_COLON_COLOR);
-                mSecondHandPaint.setColor(TEXT_STEP_COUNT_COLOR);
-                mTickAndCirclePaint.setColor(TEXT_COLON_COLOR);
-                mHourTickPaint.setColor(TEXT_COLON_COLOR);
-
-                mHourHandPaint.setAntiAlias(false);
-                mMinuteHandPaint.setAntiAlias(false);
-                mSecondHandPaint.setAntiAlias(false);
-                mTickAndCirclePaint.setAntiAlias(false);
-                mHourTickPaint.setAntiAlias(false);
-
-                mHourHandPaint.clearShadowLayer();
-                mMinuteHandPaint.clearShadowLayer();
-                mSecondHandPaint.clearShadowLayer();
-                mTickAndCirclePaint.clearShadowLayer();
-                mHourTickPaint.clearShadowLayer();
-            } else {
-                mHourHandPaint.setColor(mWatchHandColor);
-                mMinuteHandPaint.setColor(mWatchHandColor);
-                mSecondHandPaint.setColor(TEXT_STEP_COUNT_COLOR);
-                mTickAndCirclePaint.setColor(mWatchHandColor);
-                mHourTickPaint.setColor(mWatchHandColor);
-
-                mHourHandPaint.setAntiAlias(true);
-                mMinuteHandPaint.setAntiAlias(true);
-                mSecondHandPaint.setAntiAlias(true);
-                mTickAndCirclePaint.setAntiAlias(true);
-                mHourTickPaint.setAntiAlias(true);
-
-                mHourHandPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mMinuteHandPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mSecondHandPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-                mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            }
+        private void drawDial(Canvas canvas) {
+            canvas.drawColor(BACKGROUND_COLOR);
+
+            drawTicks(canvas, mMinuteTicks, mTickAndCirclePaint);
+            drawTicks(canvas, mHourTicks, mTickAndCirclePaint);
+
+            float ocodoTextYOffset = 120f;
+            canvas.drawText(mOcodoText, mOcodoCentering, ocodoTextYOffset, mOcodoTextPaint);
+        }
+
+        private void prepareDial() {
+            mDialLayer.prepare(isInAmbientMode());
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            boolean is24Hour = DateFormat.is24HourFormat(OcodoWatchFaceOne.this);
+            long now = mFrameScheduler.getFrameTimeMillis();
+            if (isInAmbientMode()) {
+                mAmbientFrame.present(canvas, now);
+                mAmbientFrame.prepare(now + AMBIENT_FRAME_MS);
+                return;
+            }
+            mTime.update(now);
 
-            canvas.drawColor(BACKGROUND_COLOR);
+            mCompositor.draw(canvas, now, isInAmbientMode());
+        }
 
-            float innerTickRadius = mCenterX - 25;
-            float outerTickRadius = mCenterX - 20;
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 60);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                if (tickIndex % 5 != 0) {
-                    canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                            mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
-                }
+        /**
+         * Redraws only the area swept by the second hand since the last frame, restoring
+         * the rest from the cached layers. Returns false when a full redraw is needed.
+         */
+        private boolean drawDirtyRegion(long now) {
+            if (!mCompositor.isCurrent(now, isInAmbientMode())) {
+                return false;
             }
+            mTime.update(now);
 
-            innerTickRadius = mCenterX - 70;
-            outerTickRadius = mCenterX - 35;
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 12);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
+            mSecondHandSprite.getBounds(mTime.getSweepingSecondRotation(), mCenterX, mCenterY, mDirtyRegion);
+            if (mDirtyRegion.isEmpty()) {
+                return false;
             }
+            mDirtyRegion.union(mSecondHandSprite.getLastBounds());
+            float colonYOffset = mYOffset - 10;
+            mDirtyRegion.union((int) mColonX, (int) (colonYOffset + mColonPaint.ascent()),
+                    (int) Math.ceil(mColonX + mColonWidth), (int) Math.ceil(colonYOffset + mColonPaint.descent()));
 
-            float mColonYOffset = mYOffset - 10;
+            return OcodoWatchFaceUtils.drawDirtyRegion(getSurfaceHolder(), mDirtyRegion, mCompositor, now);
+        }
 
-            float ocodoTextYOffset = 120f;
-            canvas.drawText(mOcodoText, mOcodoCentering, ocodoTextYOffset, mOcodoTextPaint);
+        private void drawTime(Canvas canvas) {
+            boolean is24Hour = mSettings.is24HourFormat();
 
-            float x = mXOffset;
-            String hourString;
-            if (is24Hour) {
-                hourString = formatTwoDigitNumber(mCalendar.get(Calendar.HOUR_OF_DAY));
-            } else {
-                int hour = mCalendar.get(Calendar.HOUR);
-                if (hour == 0) {
-                    hour = 12;
-                }
-                hourString = String.valueOf(hour);
-            }
-            canvas.drawText(hourString, x, mYOffset, mHourPaint);
-            x += mHourPaint.measureText(hourString);
+            mTimeText.setTime(mTime.getHourOfDay(), mTime.getMinute(), mTime.getSecond(), is24Hour);
 
-            Boolean mShouldDrawColons = (System.currentTimeMillis() % 1000) < 500;
+            float x = mXOffset;
+            char[] hour = mTimeText.getHour();
+            int hourLength = mTimeText.getHourLength();
+            canvas.drawText(hour, 0, hourLength, x, mYOffset, mHourPaint);
+            x += mHourWidths.measure(hour, hourLength);
 
-            if (isInAmbientMode() || mShouldDrawColons) {
-                canvas.drawText(COLON_STRING, x, mColonYOffset, mColonPaint);
-            }
+            mColonX = x;
             x += mColonWidth;
 
-            String minuteString = formatTwoDigitNumber(mCalendar.get(Calendar.MINUTE));
-            canvas.drawText(minuteString, x, mYOffset, mMinutePaint);
-            x += mMinutePaint.measureText(minuteString);
+            char[] minute = mTimeText.getMinute();
+            canvas.drawText(minute, 0, minute.length, x, mYOffset, mMinutePaint);
+            x += mMinuteWidths.measure(minute, minute.length);
 
             if (!isInAmbientMode()) {
-                String secondsString = formatTwoDigitNumber(mCalendar.get(Calendar.SECOND));
-                canvas.drawText(secondsString, x, mYOffset - 20, mSecondPaint);
-                DecimalFormat df = new DecimalFormat("###,###");
-                String stepString = getString(string.steps_text, df.format(mStepsTotal));
-                canvas.drawText(stepString, mXStepsOffset, mYOffset + mLineHeight, mStepCountPaint);
+                char[] second = mTimeText.getSecond();
+                canvas.drawText(second, 0, second.length, x, mYOffset - 20, mSecondPaint);
             }
 
             if (!is24Hour) {
-                canvas.drawText(getAmPmString(
-                        mCalendar.get(Calendar.AM_PM)), x, mYOffset, mAmPmPaint);
+                char[] amPm = mTimeText.getAmPm();
+                canvas.drawText(amPm, 0, amPm.length, x, mYOffset, mAmPmPaint);
             }
+        }
 
-            String date = new SimpleDateFormat("dd MMM").format(new Date()).toUpperCase();
-            float dateWidth = mAmPmPaint.measureText(date);
-            canvas.drawText(date, (mWidth / 2) - (dateWidth / 2), 300f, mAmPmPaint);
-
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
+        private void drawColon(Canvas canvas) {
+            float mColonYOffset = mYOffset - 10;
 
-            updateWatchHandStyle();
+            boolean mShouldDrawColons = mTime.getMillisecond() < 500;
 
-            canvas.save();
+            if (isInAmbientMode() || mShouldDrawColons) {
+                canvas.drawText(COLON_STRING, mColonX, mColonYOffset, mColonPaint);
+            }
+        }
 
-            canvas.rotate(hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - sHourHandLength,
-                    mHourHandPaint);
+        private void drawSteps(Canvas canvas) {
+            if (!isInAmbientMode()) {
+                canvas.drawText(mStepText.getText(), mXStepsOffset, mYOffset + mLineHeight, mStepCountPaint);
+                mStepSparkline.setSize((int) (mWidth - 2 * mXStepsOffset), SPARKLINE_HEIGHT);
+                mStepSparkline.draw(canvas, mStepRepository.getIntraday(),
+                        mXStepsOffset, mYOffset + mLineHeight + SPARKLINE_GAP, mStepCountPaint);
+            }
+        }
 
-            canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - sMinuteHandLength,
-                    mMinuteHandPaint);
+        private void drawDate(Canvas canvas) {
+            String date = mDateText.getText(mTime.getTimeMillis());
+            float dateWidth = mDateText.getWidth(mAmPmPaint);
+            canvas.drawText(date, (mWidth / 2) - (dateWidth / 2), 300f, mAmPmPaint);
+        }
 
-            if (!isInAmbientMode()) {
-                final float milliseconds = ((mCalendar.get(Calendar.SECOND) * 1000) +
-                        mCalendar.get(Calendar.MILLISECOND));
+        private void drawHourAndMinuteHands(Canvas canvas) {
+            final float minutesRotation = mTime.getMinuteRotation();
+            final float hoursRotation = mTime.getHourRotation();
 
-                final float secondsRotation = milliseconds * 0.006f;
+            if (isInAmbientMode()) {
+                canvas.save();
 
-                canvas.rotate(secondsRotation - minutesRotation, mCenterX, mCenterY);
+                canvas.rotate(hoursRotation, mCenterX, mCenterY);
                 canvas.drawLine(
                         mCenterX,
-                        mCenterY - 180,
+                        mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
                         mCenterX,
-                        mCenterY - mSecondHandLength,
-                        mSecondHandPaint);
-            }
+                        mCenterY - sHourHandLength,
+                        mHourHandPaint);
 
-            canvas.restore();
-        }
+                canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
+                canvas.drawLine(
+                        mCenterX,
+                        mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
+                        mCenterX,
+                        mCenterY - sMinuteHandLength,
+                        mMinuteHandPaint);
 
-        private void updateTimer() {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "updateTimer");
-            }
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldUpdateTimeHandlerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+                canvas.restore();
+            } else {
+                mHourHandSprite.draw(canvas, hoursRotation, mCenterX, mCenterY, mHourHandPaint);
+                mMinuteHandSprite.draw(canvas, minutesRotation, mCenterX, mCenterY, mMinuteHandPaint);
             }
         }
 
-        private boolean shouldUpdateTimeHandlerBeRunning() {
-            return isVisible() && !isInAmbientMode();
-        }
-
-        private void getTotalSteps() {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "getTotalSteps()");
-            }
-
-            if ((mGoogleApiClient != null)
-                    && (mGoogleApiClient.isConnected())
-                    && (!mStepsRequested)) {
-
-                mStepsRequested = true;
-
-                PendingResult<DailyTotalResult> stepsResult =
-                        Fitness.HistoryApi.readDailyTotal(
-                                mGoogleApiClient,
-                                DataType.TYPE_STEP_COUNT_DELTA);
+        private void drawSecondHand(Canvas canvas) {
+            if (!isInAmbientMode()) {
+                final float secondsRotation = mTime.getSweepingSecondRotation();
+                mFrameScheduler.getJitter().add(secondsRotation);
 
-                stepsResult.setResultCallback(this);
+                mSecondHandSprite.draw(canvas, secondsRotation, mCenterX, mCenterY, mSecondHandPaint);
             }
         }
 
-        @Override
-        public void onConnected(Bundle connectionHint) {
+        private void updateTimer() {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnected: " + connectionHint);
+                Log.d(TAG, "updateTimer");
+            }
+            if (shouldFrameSchedulerBeRunning()) {
+                mFrameScheduler.start();
+            } else {
+                mFrameScheduler.stop();
             }
-            mStepsRequested = false;
-            subscribeToSteps();
-            getTotalSteps();
         }
 
-        private void subscribeToSteps() {
-            Fitness.RecordingApi.subscribe(mGoogleApiClient, DataType.TYPE_STEP_COUNT_DELTA)
-                    .setResultCallback(new ResultCallback<Status>() {
-                        @Override
-                        public void onResult(Status status) {
-                            if (status.isSuccess()) {
-                                if (status.getStatusCode()
-                                        == FitnessStatusCodes.SUCCESS_ALREADY_SUBSCRIBED) {
-                                    Log.i(TAG, "Existing subscription for activity detected.");
-                                } else {
-                                    Log.i(TAG, "Successfully subscribed!");
-                                }
-                            } else {
-                                Log.i(TAG, "There was a problem subscribing.");
-                            }
-                        }
-                    });
+        private boolean shouldFrameSchedulerBeRunning() {
+            return isVisible() && !isInAmbientMode();
         }
 
         @Override
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
             super.onSurfaceChanged(holder, format, width, height);
+            mAmbientFrame.invalidate();
 
             mCenterX = width / 2f;
             mCenterY = height / 2f;
@@ -597,37 +669,18 @@ public class OcodoWatchFaceOne extends CanvasWatchFaceService {
             mSecondHandLength = (float) (mCenterX * 1.0);
             sMinuteHandLength = (float) (mCenterX * 0.85);
             sHourHandLength = (float) (mCenterX * 0.75);
-        }
-
-        @Override
-        public void onConnectionSuspended(int cause) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnectionSuspended: " + cause);
-            }
-        }
 
-        @Override
-        public void onConnectionFailed(ConnectionResult result) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnectionFailed: " + result);
-            }
-        }
-
-        @Override
-        public void onResult(DailyTotalResult dailyTotalResult) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onResult(): " + dailyTotalResult);
-            }
-            mStepsRequested = false;
-            if (dailyTotalResult.getStatus().isSuccess()) {
-                List<DataPoint> points = dailyTotalResult.getTotal().getDataPoints();
-                if (!points.isEmpty()) {
-                    mStepsTotal = points.get(0).getValue(Field.FIELD_STEPS).asInt();
-                    Log.d(TAG, "steps updated: " + mStepsTotal);
-                }
-            } else {
-                Log.e(TAG, "onResult() failed! " + dailyTotalResult.getStatus().getStatusMessage());
-            }
+            mMinuteTicks = TickGeometry.ring(60, mCenterX - 25, mCenterX - 20, mCenterX, mCenterY, TickGeometry.skipEvery(5));
+            mHourTicks = TickGeometry.ring(12, mCenterX - 70, mCenterX - 35, mCenterX, mCenterY, TickGeometry.ALL);
+
+            float shadowMargin = HandSprite.shadowMargin(SHADOW_RADIUS, 0, 0);
+            mHourHandSprite.setGeometry(-CENTER_GAP_AND_CIRCLE_RADIUS, -sHourHandLength, shadowMargin);
+            mMinuteHandSprite.setGeometry(-CENTER_GAP_AND_CIRCLE_RADIUS, -sMinuteHandLength, shadowMargin);
+            mSecondHandSprite.setGeometry(-180, -mSecondHandLength, shadowMargin);
+            mAmbientFrame.setSurfaceSize(width, height);
+            mDialLayer.setSurfaceSize(width, height);
+            mCompositor.setSurfaceSize(width, height);
+            prepareDial();
         }
     }
 }
@@ -1,6 +1,5 @@
 package info.ocodo.android.wearable.watchface;
 
-import android.annotation.SuppressLint;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -11,9 +10,6 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
-import android.support.annotation.Nullable;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.util.Log;
@@ -21,37 +17,13 @@ import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.PendingResult;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.common.api.Status;
-import com.google.android.gms.fitness.Fitness;
-import com.google.android.gms.fitness.FitnessStatusCodes;
-import com.google.android.gms.fitness.data.DataPoint;
-import com.google.android.gms.fitness.data.DataType;
-import com.google.android.gms.fitness.data.Field;
-import com.google.android.gms.fitness.result.DailyTotalResult;
-
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
-import java.util.TimeZone;
-
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.activePaint;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.ambientPaint;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.createStrokePaint;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.createTextPaint;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawClockHand;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawDayMonthDate;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawRepeatingTextDigits;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawRepeatingTicks;
+import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawTicks;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawStepsCount;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawWatchName;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawSweepingSecondHand;
-
 import static info.ocodo.android.wearable.watchface.R.dimen;
 import static info.ocodo.android.wearable.watchface.R.string;
 import static java.lang.String.format;
@@ -65,34 +37,47 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
         return new Engine();
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine implements
-            GoogleApiClient.ConnectionCallbacks,
-            GoogleApiClient.OnConnectionFailedListener,
-            ResultCallback<DailyTotalResult> {
+    private class Engine extends CanvasWatchFaceService.Engine {
 
         private static final float HOUR_HAND_THICKNESS = 18f;
         private static final float MINUTE_HAND_THICKNESS = 14f;
         private static final float SECOND_TICKS_THICKNESS = 10f;
         private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 30f;
         private static final int SHADOW_RADIUS = 3;
-        private static final int MSG_UPDATE_TIME = 0;
-        private final Handler mUpdateTimeHandler = new Handler() {
+        private static final int INTERACTIVE_FRAMES_PER_SECOND = 20;
+        private static final long STOP_TO_GO_SWEEP_MS = 58500L;
+        private final Clock mClock = OcodoWatchFaceUtils.getClock();
+        private final FrameScheduler mFrameScheduler = new FrameScheduler(mClock, new FrameScheduler.Callback() {
             @Override
-            public void handleMessage(Message message) {
-                switch (message.what) {
-                    case MSG_UPDATE_TIME:
-                        if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                            Log.v(TAG, "updating time");
-                        }
-                        invalidate();
-                        if (shouldUpdateTimeHandlerBeRunning()) {
-                            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, 50L);
-                        }
-                        break;
+            public boolean needsFrame(long frameTimeMillis) {
+                return true;
+            }
+
+            @Override
+            public void onFrame(long frameTimeMillis) {
+                if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log.v(TAG, "updating time");
                 }
+                if (!drawDirtyRegion(frameTimeMillis)) {
+                    invalidate();
+                }
+                mTime.update(frameTimeMillis);
+                mFrameScheduler.holdToNextMinute(mTime, STOP_TO_GO_SWEEP_MS);
             }
-        };
+        }, INTERACTIVE_FRAMES_PER_SECOND);
+        private FrameRateGovernor mFrameRateGovernor;
         private boolean mLowBitAmbient;
+        private DialLayer mDialLayer;
+        private float[] mMinuteTicks;
+        private float[] mHourTicks;
+        private static final String STEPS_LAYER = "steps";
+        private LayerCompositor mCompositor;
+        private final DateTextCache mDateText = new DateTextCache("dd MMM");
+        private final DateTextCache mDayOfWeekText = new DateTextCache("EEE");
+        private final Rect mDirtyRegion = new Rect();
+        private final HandSprite mHourHandSprite = new HandSprite();
+        private final HandSprite mMinuteHandSprite = new HandSprite();
+        private final HandSprite mSecondHandSprite = new HandSprite();
         private float secondHandLengthPercent = 1.0f;
         private float secondHandCenterOffsetPercent = 0.78f;
         private float minuteHandLengthPercent = 0.95f;
@@ -120,12 +105,25 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
         private Paint mSecondHandPaint;
         private Paint mSecondsTickPaint;
         private Paint mHourTickPaint;
-        private Calendar mCalendar;
-
-        private GoogleApiClient mGoogleApiClient;
-        private boolean mStepsRequested;
+        private PaintSet mHourHandPaints;
+        private PaintSet mMinuteHandPaints;
+        private PaintSet mSecondHandPaints;
+        private PaintSet mHourTickPaints;
+        private PaintSet mSecondsTickPaints;
+        private final TimeDecomposer mTime = new TimeDecomposer(mClock.getTimeZone());
+        private SystemSettingsObserver mSettings;
+
+        private StepRepository mStepRepository;
+        private final StepRepository.Listener mStepsListener = new StepRepository.Listener() {
+            @Override
+            public void onStepsChanged(int steps) {
+                if (mStepText.setSteps(steps)) {
+                    mCompositor.invalidate(STEPS_LAYER);
+                }
+            }
+        };
         private Paint mStepCountPaint;
-        private int mStepsTotal = 0;
+        private final StepTextCache mStepText = new StepTextCache("###,###", "%s steps");
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -144,17 +142,10 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             mSecondsTickPaint = createStrokePaint(DARK_HANDS, 4f, Paint.Style.STROKE, SHADOW_RADIUS, 1.0f, 1.0f, mWatchHandShadowColor);
             mHourTickPaint = createStrokePaint(DARK_HANDS, 10f, Paint.Style.STROKE, SHADOW_RADIUS, 1.0f, 1.0f, mWatchHandShadowColor);
 
-            lightTypeface = Typeface.createFromAsset(getAssets(), "gothamrnd-light.ttf");
-            normalTypeface = Typeface.createFromAsset(getAssets(), "helvetica-75-bold.ttf");
+            lightTypeface = TypefaceCache.get(getAssets(), "gothamrnd-light.ttf");
+            normalTypeface = TypefaceCache.get(getAssets(), "helvetica-75-bold.ttf");
 
-            mStepsRequested = false;
-            mGoogleApiClient = new GoogleApiClient.Builder(OcodoWatchFaceSix.this)
-                    .addConnectionCallbacks(this)
-                    .addOnConnectionFailedListener(this)
-                    .addApi(Fitness.HISTORY_API)
-                    .addApi(Fitness.RECORDING_API)
-                    .useDefaultAccount()
-                    .build();
+            mStepRepository = StepRepository.get(OcodoWatchFaceSix.this);
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(OcodoWatchFaceSix.this)
                     .setStatusBarGravity(Gravity.CENTER)
@@ -171,30 +162,104 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             mHourTextPaint = createTextPaint(DARK_HANDS, normalTypeface);
             mHourTextPaint.setTextSize(60);
             mHourTextPaint.setTextAlign(Paint.Align.CENTER);
-            mCalendar = Calendar.getInstance();
+
+            mFrameRateGovernor = new FrameRateGovernor(OcodoWatchFaceSix.this, new FrameRateGovernor.Listener() {
+                @Override
+                public void onTierChanged(FrameRateGovernor.Tier tier) {
+                    mFrameScheduler.setFrameRate(Math.min(INTERACTIVE_FRAMES_PER_SECOND, tier.framesPerSecond));
+                }
+            });
+
+            mSettings = new SystemSettingsObserver(OcodoWatchFaceSix.this, new SystemSettingsObserver.Listener() {
+                @Override
+                public void onSettingsChanged(SystemSettingsObserver settings) {
+                    mDateText.setLocale(settings.getLocale());
+                    mDayOfWeekText.setLocale(settings.getLocale());
+                    mStepText.setLocale(settings.getLocale());
+                    mCompositor.invalidate();
+                    invalidate();
+                }
+            });
+
+            createPaintSets();
+            selectPaints();
+            mDialLayer = new DialLayer(new DialLayer.Painter() {
+                @Override
+                public void paintDial(Canvas canvas) {
+                    drawDial(canvas);
+                }
+            });
+
+            mCompositor = new LayerCompositor(mTime)
+                    .add("dial", LayerCompositor.Cadence.STATIC, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            mDialLayer.draw(canvas, isInAmbientMode());
+                        }
+                    })
+                    .add("date", LayerCompositor.Cadence.PER_DAY, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawDate(canvas);
+                        }
+                    })
+                    .add(STEPS_LAYER, LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSteps(canvas);
+                        }
+                    })
+                    .add("hands", LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawHourAndMinuteHands(canvas);
+                        }
+                    })
+                    .add("second hand", LayerCompositor.Cadence.PER_FRAME, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSecondHand(canvas);
+                        }
+                    });
+
+            if (mStepRepository.hasSteps()) {
+                mStepText.setSteps(mStepRepository.getSteps());
+            }
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mFrameScheduler.stop();
+            mStepRepository.removeListener(mStepsListener);
+            mFrameRateGovernor.stop();
+            mDialLayer.release();
+            mCompositor.release();
+            mHourHandSprite.invalidate();
+            mMinuteHandSprite.invalidate();
+            mSecondHandSprite.invalidate();
             super.onDestroy();
         }
 
         @Override
         public void onVisibilityChanged(boolean visible) {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "onVisibilityChanged: " + visible);
+                Log.d(TAG, "onVisibilityChanged: " + visible + ", frame rate tier " + mFrameRateGovernor.getTier());
             }
             super.onVisibilityChanged(visible);
             if (visible) {
-                mGoogleApiClient.connect();
+                mStepRepository.addListener(mStepsListener);
                 registerReceiver();
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mSettings.register();
+                mFrameRateGovernor.start();
+                mTime.setTimeZone(mClock.getTimeZone());
+                mCompositor.invalidate();
+                mDateText.invalidate();
+                mDayOfWeekText.invalidate();
             } else {
                 unregisterReceiver();
-                if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
-                    mGoogleApiClient.disconnect();
-                }
+                mSettings.unregister();
+                mFrameRateGovernor.stop();
+                mStepRepository.removeListener(mStepsListener);
             }
             updateTimer();
         }
@@ -207,6 +272,9 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             super.onApplyWindowInsets(insets);
             Resources resources = getResources();
             mOcodoTextPaint.setTextSize(resources.getDimension(dimen.ocodo_logo_text_size));
+            mDialLayer.invalidate();
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -218,6 +286,10 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
                 Log.d(TAG, "onPropertiesChanged: burn-in protection = " + burnInProtection
                         + ", low-bit ambient = " + mLowBitAmbient);
             }
+            selectPaints();
+            mDialLayer.setLowBitAmbient(mLowBitAmbient);
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -236,6 +308,8 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
                 Log.d(TAG, "onAmbientModeChanged: " + inAmbientMode);
             }
 
+            selectPaints();
+            prepareDial();
             invalidate();
             updateTimer();
         }
@@ -250,42 +324,95 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             mSecondHandLength = mCenterX * secondHandLengthPercent;
             sMinuteHandLength = mCenterX * minuteHandLengthPercent;
             sHourHandLength = mCenterX * hourHandLengthPercent;
+
+            mMinuteTicks = TickGeometry.ring(60, mCenterX - 25, mCenterX - 10, mCenterX, mCenterY, TickGeometry.ALL);
+            mHourTicks = TickGeometry.ring(12, mCenterX - 45, mCenterX - 10, mCenterX, mCenterY, TickGeometry.ALL);
+
+            float shadowMargin = HandSprite.shadowMargin(SHADOW_RADIUS, 1.0f, 1.0f);
+            mHourHandSprite.setGeometry(CENTER_GAP_AND_CIRCLE_RADIUS, -sHourHandLength, shadowMargin);
+            mMinuteHandSprite.setGeometry(CENTER_GAP_AND_CIRCLE_RADIUS, -sMinuteHandLength, shadowMargin);
+            mSecondHandSprite.setGeometry(-((mWidth / 2) * secondHandCenterOffsetPercent), -mSecondHandLength, shadowMargin);
+            mDialLayer.setSurfaceSize(width, height);
+            mCompositor.setSurfaceSize(width, height);
+            prepareDial();
+        }
+
+        private void drawDial(Canvas canvas) {
+            canvas.drawColor(LIGHT_BG);
+
+            drawTicks(canvas, mMinuteTicks, mSecondsTickPaint);
+            drawTicks(canvas, mHourTicks, mHourTickPaint);
+
+            drawWatchName(canvas);
+        }
+
+        private void prepareDial() {
+            mDialLayer.prepare(isInAmbientMode());
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            canvas.drawColor(LIGHT_BG);
+            long now = mFrameScheduler.getFrameTimeMillis();
+            mTime.update(now);
 
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                drawRepeatingTicks(canvas, mCenterX - 25, mCenterX - 10, tickIndex, 60, mSecondsTickPaint, true);
-            }
+            mCompositor.draw(canvas, now, isInAmbientMode());
+        }
 
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++) {
-                drawRepeatingTicks(canvas, mCenterX - 45, mCenterX - 10, tickIndex, 12, mHourTickPaint, true);
+        /**
+         * Redraws only the area swept by the second hand since the last frame, restoring
+         * the rest from the cached layers. Returns false when a full redraw is needed.
+         */
+        private boolean drawDirtyRegion(long now) {
+            if (!mCompositor.isCurrent(now, isInAmbientMode())) {
+                return false;
             }
+            mTime.update(now);
 
-            drawWatchName(canvas, getString(string.ocodo_six_logo_text), ocodoTextYOffset, mWidth / 2, mOcodoTextPaint
+            mSecondHandSprite.getBounds(mTime.getStopToGoSecondRotation(STOP_TO_GO_SWEEP_MS), mCenterX, mCenterY, mDirtyRegion);
+            if (mDirtyRegion.isEmpty()) {
+                return false;
+            }
+            mDirtyRegion.union(mSecondHandSprite.getLastBounds());
 
-            drawDayMonthDate(canvas);
+            return OcodoWatchFaceUtils.drawDirtyRegion(getSurfaceHolder(), mDirtyRegion, mCompositor, now);
+        }
 
+        private void drawDate(Canvas canvas) {
             drawDayOfWeek(canvas);
 
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
+            drawDayMonthDate(canvas, mOcodoTextPaint, mWidth * 0.5f, mHeight * 0.68f, mDateText, mTime.getTimeMillis());
+        }
+
+        private void drawSteps(Canvas canvas) {
+            if (!isInAmbientMode()) {
+                drawStepsCount(canvas, mStepText,
+                        mWidth / 2, mHeight * 0.75f, mStepCountPaint);
+            }
+        }
+
+        private void drawHourAndMinuteHands(Canvas canvas) {
+            final float minutesRotation = mTime.getMinuteRotation();
+            final float hoursRotation = mTime.getHourRotation();
 
-            drawStepsCount(canvas);
-            updateWatchHandStyle();
+            if (isInAmbientMode()) {
+                canvas.save();
 
-            canvas.save();
+                drawHours(canvas, hoursRotation);
+                drawMinutes(canvas, minutesRotation, hoursRotation);
 
-            drawHours(canvas, hoursRotation);
-            drawMinutes(canvas, minutesRotation, hoursRotation);
-            drawSweepingSecondHand(canvas, minutesRotation);
+                canvas.restore();
+            } else {
+                mHourHandSprite.draw(canvas, hoursRotation, mCenterX, mCenterY, mHourHandPaint);
+                mMinuteHandSprite.draw(canvas, minutesRotation, mCenterX, mCenterY, mMinuteHandPaint);
+            }
+        }
 
-            canvas.restore();
+        private void drawSecondHand(Canvas canvas) {
+            if (!isInAmbientMode()) {
+                final float secondsRotation = mTime.getStopToGoSecondRotation(STOP_TO_GO_SWEEP_MS);
+
+                mSecondHandSprite.draw(canvas, secondsRotation, mCenterX, mCenterY, mSecondHandPaint);
+            }
         }
 
         private void drawWatchName(Canvas canvas) {
@@ -294,9 +421,8 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
         }
 
         private void drawDayOfWeek(Canvas canvas) {
-            @SuppressLint("SimpleDateFormat")
-            String date = new SimpleDateFormat("EEE").format(new Date()).toUpperCase();
-            float mDateOffsetY = mHeight * 0.67f;
+            String date = mDayOfWeekText.getText(mTime.getTimeMillis());
+            float mDateOffsetY = mHeight * 0.62f;
             canvas.drawText(date, mWidth / 2, mDateOffsetY, mStepCountPaint);
         }
 
@@ -320,55 +446,56 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             return format("%02d", hour);
         }
 
-        private void drawHourDigits(Canvas canvas) {
-            String[] textItems = new String[]{
-                    getResources().getString(string.twelve),
-                    getResources().getString(string.three),
-                    getResources().getString(string.six),
-                    getResources().getString(string.nine)
-            };
-            for (int digitIndex = 0; digitIndex < 4; digitIndex++) {
-                drawRepeatingText(textItems[digitIndex], canvas,
-                        mCenterX - 60f,
-                        digitIndex, 4,
-                        mHourTextPaint, true);
-            }
-        }
-
         private void updateTimer() {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
                 Log.d(TAG, "updateTimer");
             }
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldUpdateTimeHandlerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            if (shouldFrameSchedulerBeRunning()) {
+                mFrameScheduler.start();
+            } else {
+                mFrameScheduler.stop();
             }
         }
 
-        private boolean shouldUpdateTimeHandlerBeRunning() {
+        private boolean shouldFrameSchedulerBeRunning() {
             return isVisible() && !isInAmbientMode();
         }
 
-        private void updateWatchHandStyle() {
-            if (isInAmbientMode()) {
-                ambientPaint(mHourHandPaint, DARK_HANDS);
-                ambientPaint(mMinuteHandPaint, DARK_HANDS);
-                ambientPaint(mSecondHandPaint, SECOND_HAND);
-                ambientPaint(mHourTickPaint, DARK_HANDS);
-                ambientPaint(mSecondsTickPaint, DARK_HANDS);
-            } else {
-                activePaint(mSecondHandPaint, SECOND_HAND);
-                activePaint(mHourTickPaint, mWatchHandColor);
-                activePaint(mMinuteHandPaint, mWatchHandColor);
-                activePaint(mSecondsTickPaint, mWatchHandColor);
-                activePaint(mHourHandPaint, mWatchHandColor);
-            }
+        private void createPaintSets() {
+            activePaint(mSecondHandPaint, SECOND_HAND);
+            activePaint(mHourTickPaint, mWatchHandColor);
+            activePaint(mMinuteHandPaint, mWatchHandColor);
+            activePaint(mSecondsTickPaint, mWatchHandColor);
+            activePaint(mHourHandPaint, mWatchHandColor);
+
+            mHourHandPaints = PaintSet.forStroke(mHourHandPaint, DARK_HANDS);
+            mMinuteHandPaints = PaintSet.forStroke(mMinuteHandPaint, DARK_HANDS);
+            mSecondHandPaints = PaintSet.forStroke(mSecondHandPaint, SECOND_HAND);
+            mHourTickPaints = PaintSet.forStroke(mHourTickPaint, DARK_HANDS);
+            mSecondsTickPaints = PaintSet.forStroke(mSecondsTickPaint, DARK_HANDS);
+        }
+
+        /**
+         * Points the paint fields at the variants for the current mode. Called when the mode
+         * or the low-bit property changes, never while drawing a frame.
+         */
+        private void selectPaints() {
+            boolean ambient = isInAmbientMode();
+            mHourHandPaint = mHourHandPaints.select(ambient, mLowBitAmbient);
+            mMinuteHandPaint = mMinuteHandPaints.select(ambient, mLowBitAmbient);
+            mSecondHandPaint = mSecondHandPaints.select(ambient, mLowBitAmbient);
+            mHourTickPaint = mHourTickPaints.select(ambient, mLowBitAmbient);
+            mSecondsTickPaint = mSecondsTickPaints.select(ambient, mLowBitAmbient);
         }
 
         private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mTime.setTimeZone(mClock.getTimeZone());
+                mFrameScheduler.resetTimebase();
+                mCompositor.invalidate();
+                mDateText.invalidate();
+                mDayOfWeekText.invalidate();
                 invalidate();
             }
         };
@@ -379,6 +506,7 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             }
             mRegisteredReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             OcodoWatchFaceSix.this.registerReceiver(mReceiver, filter);
         }
 
@@ -389,85 +517,5 @@ public class OcodoWatchFaceSix extends CanvasWatchFaceService {
             mRegisteredReceiver = false;
             OcodoWatchFaceSix.this.unregisterReceiver(mReceiver);
         }
-
-        @Override
-        public void onConnected(@Nullable Bundle connectionHint) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnected: " + connectionHint);
-            }
-            mStepsRequested = false;
-            subscribeToSteps();
-            getTotalSteps();
-        }
-
-        private void getTotalSteps() {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "getTotalSteps()");
-            }
-
-            if ((mGoogleApiClient != null)
-                    && (mGoogleApiClient.isConnected())
-                    && (!mStepsRequested)) {
-
-                mStepsRequested = true;
-
-                PendingResult<DailyTotalResult> stepsResult =
-                        Fitness.HistoryApi.readDailyTotal(
-                                mGoogleApiClient,
-                                DataType.TYPE_STEP_COUNT_DELTA);
-
-                stepsResult.setResultCallback(this);
-            }
-        }
-
-        private void subscribeToSteps() {
-            Fitness.RecordingApi.subscribe(mGoogleApiClient, DataType.TYPE_STEP_COUNT_DELTA)
-                    .setResultCallback(new ResultCallback<Status>() {
-                        @Override
-                        public void onResult(Status status) {
-                            if (status.isSuccess()) {
-                                if (status.getStatusCode()
-                                        == FitnessStatusCodes.SUCCESS_ALREADY_SUBSCRIBED) {
-                                    Log.i(TAG, "Existing subscription for activity detected.");
-                                } else {
-                                    Log.i(TAG, "Successfully subscribed!");
-                                }
-                            } else {
-                                Log.i(TAG, "There was a problem subscribing.");
-                            }
-                        }
-                    });
-        }
-
-        @Override
-        public void onConnectionSuspended(int cause) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnectionSuspended: " + cause);
-            }
-        }
-
-        @Override
-        public void onConnectionFailed(ConnectionResult result) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnectionFailed: " + result);
-            }
-        }
-
-        @Override
-        public void onResult(DailyTotalResult dailyTotalResult) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onResult(): " + dailyTotalResult);
-            }
-            mStepsRequested = false;
-            if (dailyTotalResult.getStatus().isSuccess()) {
-                List<DataPoint> points = dailyTotalResult.getTotal().getDataPoints();
-                if (!points.isEmpty()) {
-                    mStepsTotal = points.get(0).getValue(Field.FIELD_STEPS).asInt();
-                    Log.d(TAG, "steps updated: " + mStepsTotal);
-                }
-            } else {
-                Log.e(TAG, "onResult() failed! " + dailyTotalResult.getStatus().getStatusMessage());
-            }
-        }
     }
 }
@@ -1,6 +1,5 @@
 package info.ocodo.android.wearable.watchface;
 
-import android.annotation.SuppressLint;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -11,8 +10,6 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.util.Log;
@@ -20,11 +17,8 @@ import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
-
+import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.activePaint;
+import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawTicks;
 import static info.ocodo.android.wearable.watchface.R.dimen;
 import static info.ocodo.android.wearable.watchface.R.string;
 
@@ -32,6 +26,12 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
 
     private static final String TAG = "OcodoWatchFaceFour";
 
+    /**
+     * Steps the second hand like a 28,800 bph mechanical movement, in place of the 11 fps
+     * sweep it used to approximate.
+     */
+    private static final FrameScheduler.BeatRate SECOND_HAND_BEAT = FrameScheduler.BeatRate.BEATS_8;
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -44,24 +44,24 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
         private static final float SECOND_TICK_STROKE_WIDTH = 10f;
         private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 30f;
         private static final int SHADOW_RADIUS = 12;
-        private static final int MSG_UPDATE_TIME = 0;
 
-        private final Handler mUpdateTimeHandler = new Handler() {
+        private final Clock mClock = OcodoWatchFaceUtils.getClock();
+        private final FrameScheduler mFrameScheduler = new FrameScheduler(mClock, new FrameScheduler.Callback() {
             @Override
-            public void handleMessage(Message message) {
-                switch (message.what) {
-                    case MSG_UPDATE_TIME:
-                        if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                            Log.v(TAG, "updating time");
-                        }
-                        invalidate();
-                        if (shouldUpdateTimeHandlerBeRunning()) {
-                            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, 90L);
-                        }
-                        break;
+            public boolean needsFrame(long frameTimeMillis) {
+                return true;
+            }
+
+            @Override
+            public void onFrame(long frameTimeMillis) {
+                if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log.v(TAG, "updating time");
+                }
+                if (!drawDirtyRegion(frameTimeMillis)) {
+                    invalidate();
                 }
             }
-        };
+        }, SECOND_HAND_BEAT);
 
         private int mWidth;
         private int mHeight;
@@ -84,12 +84,21 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
         private Paint mSecondHandPaint;
         private Paint mTickAndCirclePaint;
         private Paint mHourTickPaint;
-        private Calendar mCalendar;
+        private PaintSet mHourHandPaints;
+        private PaintSet mMinuteHandPaints;
+        private PaintSet mSecondHandPaints;
+        private PaintSet mTickAndCirclePaints;
+        private PaintSet mHourTickPaints;
+        private final TimeDecomposer mTime = new TimeDecomposer(mClock.getTimeZone());
+        private SystemSettingsObserver mSettings;
 
         private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mTime.setTimeZone(mClock.getTimeZone());
+                mFrameScheduler.resetTimebase();
+                mCompositor.invalidate();
+                mDateText.invalidate();
                 invalidate();
             }
         };
@@ -97,6 +106,15 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
         private float mOcodoWidth;
         private float mOcodoCentering;
         private boolean mLowBitAmbient;
+        private DialLayer mDialLayer;
+        private float[] mMinuteTicks;
+        private float[] mHourTicks;
+        private LayerCompositor mCompositor;
+        private final DateTextCache mDateText = new DateTextCache("dd MMM");
+        private final Rect mDirtyRegion = new Rect();
+        private final HandSprite mHourHandSprite = new HandSprite();
+        private final HandSprite mMinuteHandSprite = new HandSprite();
+        private final HandSprite mSecondHandSprite = new HandSprite();
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -145,7 +163,7 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
             mHourTickPaint.setStyle(Paint.Style.STROKE);
             mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
 
-            normalTypeface = Typeface.createFromAsset(getAssets(), "gothamrnd-light.ttf");
+            normalTypeface = TypefaceCache.get(getAssets(), "gothamrnd-light.ttf");
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(OcodoWatchFaceThree.this)
                     .setStatusBarGravity(Gravity.CENTER)
@@ -155,12 +173,60 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
                     .build());
 
             mOcodoTextPaint = createTextPaint(TEXT_COLON_COLOR, normalTypeface);
-            mCalendar = Calendar.getInstance();
+
+            mSettings = new SystemSettingsObserver(OcodoWatchFaceThree.this, new SystemSettingsObserver.Listener() {
+                @Override
+                public void onSettingsChanged(SystemSettingsObserver settings) {
+                    mDateText.setLocale(settings.getLocale());
+                    mCompositor.invalidate();
+                    invalidate();
+                }
+            });
+
+            createPaintSets();
+            selectPaints();
+            mDialLayer = new DialLayer(new DialLayer.Painter() {
+                @Override
+                public void paintDial(Canvas canvas) {
+                    drawDial(canvas);
+                }
+            });
+
+            mCompositor = new LayerCompositor(mTime)
+                    .add("dial", LayerCompositor.Cadence.STATIC, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            mDialLayer.draw(canvas, isInAmbientMode());
+                        }
+                    })
+                    .add("date", LayerCompositor.Cadence.PER_DAY, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawDate(canvas);
+                        }
+                    })
+                    .add("hands", LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawHourAndMinuteHands(canvas);
+                        }
+                    })
+                    .add("second hand", LayerCompositor.Cadence.PER_FRAME, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSecondHand(canvas);
+                        }
+                    });
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mFrameScheduler.stop();
+            mDialLayer.release();
+            mCompositor.release();
+            mHourHandSprite.invalidate();
+            mMinuteHandSprite.invalidate();
+            mSecondHandSprite.invalidate();
             super.onDestroy();
         }
 
@@ -181,10 +247,14 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
 
             if (visible) {
                 registerReceiver();
+                mSettings.register();
 
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mTime.setTimeZone(mClock.getTimeZone());
+                mCompositor.invalidate();
+                mDateText.invalidate();
             } else {
                 unregisterReceiver();
+                mSettings.unregister();
             }
 
             updateTimer();
@@ -197,6 +267,7 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
             }
             mRegisteredReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             OcodoWatchFaceThree.this.registerReceiver(mReceiver, filter);
         }
 
@@ -218,6 +289,9 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
             mOcodoTextPaint.setTextSize(resources.getDimension(dimen.ocodo_logo_text_size));
             mOcodoWidth = mOcodoTextPaint.measureText(resources.getString(string.ocodo_three_logo_text));
             mOcodoCentering = (mWidth / 2f) - (mOcodoWidth / 2);
+            mDialLayer.invalidate();
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -229,6 +303,10 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
                 Log.d(TAG, "onPropertiesChanged: burn-in protection = " + burnInProtection
                         + ", low-bit ambient = " + mLowBitAmbient);
             }
+            selectPaints();
+            mDialLayer.setLowBitAmbient(mLowBitAmbient);
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -248,146 +326,138 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
                 Log.d(TAG, "onAmbientModeChanged: " + inAmbientMode);
             }
 
+            selectPaints();
+            prepareDial();
             invalidate();
             updateTimer();
         }
 
-        private void updateWatchHandStyle() {
-            if (isInAmbientMode()) {
-                mHourHandPaint.setColor(TEXT_COLON_COLOR);
-                mMinuteHandPaint.setColor(TEXT_COLON_COLOR);
-                mSecondHandPaint.setColor(TEXT_STEP_COUNT_COLOR);
-                mTickAndCirclePaint.setColor(TEXT_COLON_COLOR);
-                mHourTickPaint.setColor(TEXT_COLON_COLOR);
-
-                mHourHandPaint.setAntiAlias(false);
-                mMinuteHandPaint.setAntiAlias(false);
-                mSecondHandPaint.setAntiAlias(false);
-                mTickAndCirclePaint.setAntiAlias(false);
-                mHourTickPaint.setAntiAlias(false);
-
-                mHourHandPaint.clearShadowLayer();
-                mMinuteHandPaint.clearShadowLayer();
-                mSecondHandPaint.clearShadowLayer();
-                mTickAndCirclePaint.clearShadowLayer();
-                mHourTickPaint.clearShadowLayer();
-            } else {
-                mHourHandPaint.setColor(mWatchHandColor);
-                mMinuteHandPaint.setColor(mWatchHandColor);
-                mSecondHandPaint.setColor(TEXT_STEP_COUNT_COLOR);
-                mTickAndCirclePaint.setColor(mWatchHandColor);
-                mHourTickPaint.setColor(mWatchHandColor);
-
-                mHourHandPaint.setAntiAlias(true);
-                mMinuteHandPaint.setAntiAlias(true);
-                mSecondHandPaint.setAntiAlias(true);
-                mTickAndCirclePaint.setAntiAlias(true);
-                mHourTickPaint.setAntiAlias(true);
-
-                mHourHandPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mMinuteHandPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mSecondHandPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-                mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            }
+        private void createPaintSets() {
+            activePaint(mHourHandPaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mMinuteHandPaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mSecondHandPaint, TEXT_STEP_COUNT_COLOR, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mTickAndCirclePaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            activePaint(mHourTickPaint, mWatchHandColor, SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+
+            mHourHandPaints = PaintSet.forStroke(mHourHandPaint, TEXT_COLON_COLOR);
+            mMinuteHandPaints = PaintSet.forStroke(mMinuteHandPaint, TEXT_COLON_COLOR);
+            mSecondHandPaints = PaintSet.forStroke(mSecondHandPaint, TEXT_STEP_COUNT_COLOR);
+            mTickAndCirclePaints = PaintSet.forStroke(mTickAndCirclePaint, TEXT_COLON_COLOR);
+            mHourTickPaints = PaintSet.forStroke(mHourTickPaint, TEXT_COLON_COLOR);
         }
 
-        @Override
-        public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            canvas.drawColor(BACKGROUND_COLOR);
-            float innerTickRadius = mCenterX - 25;
-            float outerTickRadius = mCenterX - 20;
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 60);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                if (tickIndex % 5 != 0) {
-                    canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                            mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
-                }
-            }
+        /**
+         * Points the paint fields at the variants for the current mode. Called when the mode
+         * or the low-bit property changes, never while drawing a frame.
+         */
+        private void selectPaints() {
+            boolean ambient = isInAmbientMode();
+            mHourHandPaint = mHourHandPaints.select(ambient, mLowBitAmbient);
+            mMinuteHandPaint = mMinuteHandPaints.select(ambient, mLowBitAmbient);
+            mSecondHandPaint = mSecondHandPaints.select(ambient, mLowBitAmbient);
+            mTickAndCirclePaint = mTickAndCirclePaints.select(ambient, mLowBitAmbient);
+            mHourTickPaint = mHourTickPaints.select(ambient, mLowBitAmbient);
+        }
 
-            innerTickRadius = mCenterX - 70;
-            outerTickRadius = mCenterX - 35;
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 12);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                if(tickIndex != 3) {
-                    canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                            mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
-                }
-            }
+        private void drawDial(Canvas canvas) {
+            canvas.drawColor(BACKGROUND_COLOR);
+            drawTicks(canvas, mMinuteTicks, mTickAndCirclePaint);
+            drawTicks(canvas, mHourTicks, mTickAndCirclePaint);
 
             float ocodoTextYOffset = 120f;
             canvas.drawText(getString(string.ocodo_three_logo_text), mOcodoCentering, ocodoTextYOffset, mOcodoTextPaint);
+        }
 
-            @SuppressLint("SimpleDateFormat")
-            String date = new SimpleDateFormat("dd MMM").format(new Date()).toUpperCase();
-            float dateWidth = mOcodoTextPaint.measureText(date);
-            float mDateOffsetY = mHeight / 2;
-            canvas.drawText(date, (mWidth / 2) + dateWidth, mDateOffsetY + 8, mOcodoTextPaint);
+        private void prepareDial() {
+            mDialLayer.prepare(isInAmbientMode());
+        }
 
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
+        @Override
+        public void onDraw(Canvas canvas, Rect bounds) {
+            long now = mFrameScheduler.getFrameTimeMillis();
+            mTime.update(now);
 
-            updateWatchHandStyle();
+            mCompositor.draw(canvas, now, isInAmbientMode());
+        }
 
-            canvas.save();
+        /**
+         * Redraws only the area swept by the second hand since the last frame, restoring
+         * the rest from the cached layers. Returns false when a full redraw is needed.
+         */
+        private boolean drawDirtyRegion(long now) {
+            if (!mCompositor.isCurrent(now, isInAmbientMode())) {
+                return false;
+            }
+            mTime.update(now);
 
-            canvas.rotate(hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY + CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - sHourHandLength,
-                    mHourHandPaint);
+            float secondsRotation = mTime.getBeatingSecondRotation(SECOND_HAND_BEAT.beatsPerSecond);
+            mSecondHandSprite.getBounds(secondsRotation, mCenterX, mCenterY, mDirtyRegion);
+            if (mDirtyRegion.isEmpty()) {
+                return false;
+            }
+            mDirtyRegion.union(mSecondHandSprite.getLastBounds());
 
-            canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY + CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - sMinuteHandLength,
-                    mMinuteHandPaint);
+            return OcodoWatchFaceUtils.drawDirtyRegion(getSurfaceHolder(), mDirtyRegion, mCompositor, now);
+        }
 
-            if (!isInAmbientMode()) {
-                final float milliseconds = ((mCalendar.get(Calendar.SECOND) * 1000) +
-                        mCalendar.get(Calendar.MILLISECOND));
+        private void drawDate(Canvas canvas) {
+            String date = mDateText.getText(mTime.getTimeMillis());
+            float dateWidth = mDateText.getWidth(mOcodoTextPaint);
+            float mDateOffsetY = mHeight / 2;
+            canvas.drawText(date, (mWidth / 2) + dateWidth, mDateOffsetY + 8, mOcodoTextPaint);
+        }
 
-                final float secondsRotation = milliseconds * 0.006f;
+        private void drawHourAndMinuteHands(Canvas canvas) {
+            final float minutesRotation = mTime.getMinuteRotation();
+            final float hoursRotation = mTime.getHourRotation();
 
-                canvas.rotate(secondsRotation - minutesRotation, mCenterX, mCenterY);
+            if (isInAmbientMode()) {
+                canvas.save();
+
+                canvas.rotate(hoursRotation, mCenterX, mCenterY);
                 canvas.drawLine(
                         mCenterX,
-                        mCenterY - 180,
+                        mCenterY + CENTER_GAP_AND_CIRCLE_RADIUS,
+                        mCenterX,
+                        mCenterY - sHourHandLength,
+                        mHourHandPaint);
+
+                canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
+                canvas.drawLine(
                         mCenterX,
-                        mCenterY - mSecondHandLength,
-                        mSecondHandPaint);
+                        mCenterY + CENTER_GAP_AND_CIRCLE_RADIUS,
+                        mCenterX,
+                        mCenterY - sMinuteHandLength,
+                        mMinuteHandPaint);
+
+                canvas.restore();
+            } else {
+                mHourHandSprite.draw(canvas, hoursRotation, mCenterX, mCenterY, mHourHandPaint);
+                mMinuteHandSprite.draw(canvas, minutesRotation, mCenterX, mCenterY, mMinuteHandPaint);
             }
+        }
+
+        private void drawSecondHand(Canvas canvas) {
+            if (!isInAmbientMode()) {
+                final float secondsRotation = mTime.getBeatingSecondRotation(SECOND_HAND_BEAT.beatsPerSecond);
+                mFrameScheduler.getJitter().add(secondsRotation);
 
-            canvas.restore();
+                mSecondHandSprite.draw(canvas, secondsRotation, mCenterX, mCenterY, mSecondHandPaint);
+            }
         }
 
         private void updateTimer() {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
                 Log.d(TAG, "updateTimer");
             }
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldUpdateTimeHandlerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            if (shouldFrameSchedulerBeRunning()) {
+                mFrameScheduler.start();
+            } else {
+                mFrameScheduler.stop();
             }
         }
 
-        private boolean shouldUpdateTimeHandlerBeRunning() {
+        private boolean shouldFrameSchedulerBeRunning() {
             return isVisible() && !isInAmbientMode();
         }
 
@@ -401,6 +471,17 @@ public class OcodoWatchFaceThree extends CanvasWatchFaceService {
             mSecondHandLength = (float) (mCenterX * 1.0);
             sMinuteHandLength = (float) (mCenterX * 0.83);
             sHourHandLength = (float) (mCenterX * 0.55);
+
+            mMinuteTicks = TickGeometry.ring(60, mCenterX - 25, mCenterX - 20, mCenterX, mCenterY, TickGeometry.skipEvery(5));
+            mHourTicks = TickGeometry.ring(12, mCenterX - 70, mCenterX - 35, mCenterX, mCenterY, TickGeometry.skipIndex(3));
+
+            float shadowMargin = HandSprite.shadowMargin(SHADOW_RADIUS, 0, 0);
+            mHourHandSprite.setGeometry(CENTER_GAP_AND_CIRCLE_RADIUS, -sHourHandLength, shadowMargin);
+            mMinuteHandSprite.setGeometry(CENTER_GAP_AND_CIRCLE_RADIUS, -sMinuteHandLength, shadowMargin);
+            mSecondHandSprite.setGeometry(-180, -mSecondHandLength, shadowMargin);
+            mDialLayer.setSurfaceSize(width, height);
+            mCompositor.setSurfaceSize(width, height);
+            prepareDial();
         }
     }
 }
@@ -1,52 +1,71 @@
 package info.ocodo.android.wearable.watchface;
 
-import android.annotation.SuppressLint;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.Typeface;
-
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import android.view.SurfaceHolder;
 
 import static java.lang.String.format;
 
 public class OcodoWatchFaceUtils {
 
+    private static Clock sClock = Clock.SYSTEM;
+
+    /**
+     * Clock the engines take their time from, picked up when an engine is created.
+     */
+    static Clock getClock() {
+        return sClock;
+    }
+
+    /**
+     * Swaps in a simulated clock for tests; engines and helpers created afterwards use it.
+     */
+    static void setClock(Clock clock) {
+        sClock = clock;
+    }
+
     static void drawWatchName(Canvas canvas, String name, float textYOffset, int screenWidth, Paint paint) {
         canvas.drawText(name, screenWidth / 2, textYOffset, paint);
     }
 
-    static void drawDayMonthDate(Canvas canvas, Paint paint, float x, float y, String simpleDateFormatPattern) {
-        @SuppressLint("SimpleDateFormat")
-        String date = new SimpleDateFormat(simpleDateFormatPattern).format(new Date()).toUpperCase();
-        canvas.drawText(date, x, y, paint);
+    static void drawDayMonthDate(Canvas canvas, Paint paint, float x, float y, DateTextCache date, long now) {
+        canvas.drawText(date.getText(now), x, y, paint);
     }
 
-    static void drawStepsCount(Canvas canvas, int stepsTotal,
-                               String numberFormat, String stringFormat, int x, float y, Paint paint) {
-        DecimalFormat df = new DecimalFormat(numberFormat);
-        String formattedStepString = format(stringFormat, df.format(stepsTotal));
-        canvas.drawText(formattedStepString, x, y, paint);
+    static void drawStepsCount(Canvas canvas, StepTextCache steps, int x, float y, Paint paint) {
+        canvas.drawText(steps.getText(), x, y, paint);
     }
 
-    static void drawTickingSecondHand(Canvas canvas, float minutesRotation, Calendar calendar, float centerX, float centerY, int width,
-                                      float centerOffsetPercent, float handLength, Paint handPaint) {
-        final float secondsRotation = calendar.get(Calendar.SECOND) * 6f;
-        drawClockHand(canvas, secondsRotation - minutesRotation, centerX,
-                centerY,
-                centerY - ((width / 2) * centerOffsetPercent),
-                centerY - handLength,
-                handPaint);
-    }
+    /**
+     * Draws bars {@code from} to {@code to} (exclusive) of a step sparkline, one per
+     * {@code bucketMinutes} of the day and {@code scale} steps tall, clearing each bar's
+     * column first so bars can be redrawn in place.
+     */
+    static void drawStepBars(Canvas canvas, IntradaySteps steps, int bucketMinutes, int from, int to,
+                             float barWidth, float height, int scale, Paint paint) {
+        float gap = barWidth > 2 ? 1 : 0;
+        for (int bar = from; bar < to; bar++) {
+            float left = bar * barWidth;
+            canvas.save();
+            canvas.clipRect(left, 0, left + barWidth, height);
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            canvas.restore();
 
-    static void drawSweepingSecondHand(Canvas canvas, float minutesRotation, Calendar calendar, float centerX, float centerY, int width,
-                                       float centerOffsetPercent, float handLength, Paint handPaint) {
-        final float milliseconds = ((calendar.get(Calendar.SECOND) * 1000) +
-                calendar.get(Calendar.MILLISECOND));
-        final float secondsRotation = milliseconds * 0.006f;
+            int value = steps.sum(bar * bucketMinutes, (bar + 1) * bucketMinutes);
+            if (value > 0) {
+                float barHeight = Math.max(1f, height * Math.min(value, scale) / scale);
+                canvas.drawRect(left, height - barHeight, left + barWidth - gap, height, paint);
+            }
+        }
+    }
 
+    static void drawTickingSecondHand(Canvas canvas, float minutesRotation, TimeDecomposer time, float centerX, float centerY, int width,
+                                      float centerOffsetPercent, float handLength, Paint handPaint) {
+        final float secondsRotation = time.getTickingSecondRotation();
         drawClockHand(canvas, secondsRotation - minutesRotation, centerX,
                 centerY,
                 centerY - ((width / 2) * centerOffsetPercent),
@@ -69,22 +88,26 @@ public class OcodoWatchFaceUtils {
                 mHourHandPaint);
     }
 
-    static void drawRepeatingTicks(Canvas canvas, float innerRadius, float outerRadius,
-                                   int index, int count, Paint paint, boolean predicate, float centerX, float centerY) {
-        float tickRot = (float) (index * Math.PI * 2 / count);
-        float innerX = (float) Math.sin(tickRot) * innerRadius;
-        float innerY = (float) -Math.cos(tickRot) * innerRadius;
-        float outerX = (float) Math.sin(tickRot) * outerRadius;
-        float outerY = (float) -Math.cos(tickRot) * outerRadius;
-        if (predicate) {
-            canvas.drawLine(
-                    centerX + innerX,
-                    centerY + innerY,
-                    centerX + outerX,
-                    centerY + outerY,
-                    paint
-            );
+    /**
+     * Redraws only {@code dirty} from the compositor, straight to the surface instead of
+     * going through invalidate(). Returns false if no canvas could be locked, so the caller
+     * can fall back to a full redraw.
+     */
+    static boolean drawDirtyRegion(SurfaceHolder holder, Rect dirty, LayerCompositor compositor, long now) {
+        Canvas canvas = holder.lockCanvas(dirty);
+        if (canvas == null) {
+            return false;
+        }
+        try {
+            compositor.draw(canvas, now, false);
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
         }
+        return true;
+    }
+
+    static void drawTicks(Canvas canvas, float[] tickLines, Paint paint) {
+        canvas.drawLines(tickLines, paint);
     }
 
     static void drawRepeatingTextDigits(Canvas canvas, String[] textItems, Paint textPaint, float x, float y, float yAdjust, int count, float offset) {
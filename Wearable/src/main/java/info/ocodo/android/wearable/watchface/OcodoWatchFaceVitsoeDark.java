@@ -11,9 +11,7 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
-import android.support.annotation.Nullable;
+import android.os.Looper;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.util.Log;
@@ -21,31 +19,16 @@ import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.PendingResult;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.common.api.Status;
-import com.google.android.gms.fitness.Fitness;
-import com.google.android.gms.fitness.FitnessStatusCodes;
-import com.google.android.gms.fitness.data.DataPoint;
-import com.google.android.gms.fitness.data.DataType;
-import com.google.android.gms.fitness.data.Field;
-import com.google.android.gms.fitness.result.DailyTotalResult;
-
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
-import java.util.TimeZone;
 
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.activePaint;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.ambientPaint;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.createStrokePaint;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.createTextPaint;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawClockHand;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawDayMonthDate;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawRepeatingTextDigits;
-import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawRepeatingTicks;
+import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawTicks;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawStepsCount;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawTickingSecondHand;
 import static info.ocodo.android.wearable.watchface.OcodoWatchFaceUtils.drawWatchName;
@@ -54,16 +37,14 @@ import static info.ocodo.android.wearable.watchface.R.string;
 public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
 
     private static final String TAG = "Ocodo::VitsoeDark";
+    private static final FrameScheduler.BeatRate SECOND_HAND_BEAT = FrameScheduler.BeatRate.TICKING;
 
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine implements
-            GoogleApiClient.ConnectionCallbacks,
-            GoogleApiClient.OnConnectionFailedListener,
-            ResultCallback<DailyTotalResult> {
+    private class Engine extends CanvasWatchFaceService.Engine {
 
         private static final float HOUR_HAND_THICKNESS = 22f;
         private static final float MINUTE_HAND_THICKNESS = 14f;
@@ -74,27 +55,32 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
         private static final float SECOND_HAND_CENTER_OFFSET_PERCENT = -0.23f;
         private static final float MINUTE_HAND_LENGTH_PERCENT = 0.84f;
         private static final float HOUR_HAND_LENGTH_PERCENT = 0.63f;
-        private static final int MSG_UPDATE_TIME = 0;
-        private static final long DRAW_UPDATE_TIME = 50L;
 
-        private final Handler mUpdateTimeHandler = new Handler() {
+        private final Clock mClock = OcodoWatchFaceUtils.getClock();
+        private final FrameScheduler mFrameScheduler = new FrameScheduler(mClock, new FrameScheduler.Callback() {
             @Override
-            public void handleMessage(Message message) {
-                switch (message.what) {
-                    case MSG_UPDATE_TIME:
-                        if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                            Log.v(TAG, "updating time");
-                        }
-                        invalidate();
-                        if (shouldUpdateTimeHandlerBeRunning()) {
-                            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, DRAW_UPDATE_TIME);
-                        }
-                        break;
+            public boolean needsFrame(long frameTimeMillis) {
+                // Beats can land a hair early after a clock adjustment; a frame that
+                // would repaint identical pixels is skipped.
+                return mPrerenderer.isStale(frameTimeMillis);
+            }
+
+            @Override
+            public void onFrame(long frameTimeMillis) {
+                if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log.v(TAG, "updating time");
                 }
+                invalidate();
             }
-        };
+        }, SECOND_HAND_BEAT);
 
         private boolean mLowBitAmbient;
+        private DialLayer mDialLayer;
+        private float[] mMinuteTicks;
+        private float[] mHourTicks;
+        private static final String STEPS_LAYER = "steps";
+        private LayerCompositor mCompositor;
+        private final DateTextCache mDateText = new DateTextCache("dd MMM");
         private int mWidth;
         private int mHeight;
         private int LIGHT_BG = getResources().getColor(R.color.bg);
@@ -119,18 +105,37 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
         private Paint mSecondHandTipPaint;
         private Paint mMinuteTickPaint;
         private Paint mHourTickPaint;
-        private Calendar mCalendar;
+        private PaintSet mHourHandPaints;
+        private PaintSet mMinuteHandPaints;
+        private PaintSet mSecondHandPaints;
+        private PaintSet mHourTickPaints;
+        private PaintSet mMinuteTickPaints;
+        private final TimeDecomposer mTime = new TimeDecomposer(mClock.getTimeZone());
+        private FramePrerenderer mPrerenderer;
+        private SystemSettingsObserver mSettings;
         private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mPrerenderer.invalidate();
+                mTime.setTimeZone(mClock.getTimeZone());
+                mFrameScheduler.resetTimebase();
+                mCompositor.invalidate();
+                mDateText.invalidate();
                 invalidate();
             }
         };
-        private GoogleApiClient mGoogleApiClient;
-        private boolean mStepsRequested;
+        private StepRepository mStepRepository;
+        private final StepRepository.Listener mStepsListener = new StepRepository.Listener() {
+            @Override
+            public void onStepsChanged(int steps) {
+                mPrerenderer.invalidate();
+                if (mStepText.setSteps(steps)) {
+                    mCompositor.invalidate(STEPS_LAYER);
+                }
+            }
+        };
         private Paint mStepCountPaint;
-        private int mStepsTotal = 0;
+        private final StepTextCache mStepText = new StepTextCache("###,###", "%s ST");
         private Paint mCenterCirclePaint;
         private Paint mOuterCenterCirclePaint;
 
@@ -165,17 +170,10 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             mMinuteTickPaint = createStrokePaint(DARK_HANDS, MINUTE_TICKS_THICKNESS, Paint.Style.STROKE);
             mHourTickPaint = createStrokePaint(DARK_HANDS, HOUR_TICKS_THICKNESS, Paint.Style.STROKE);
 
-            lightTypeface = Typeface.createFromAsset(getAssets(), "gothamrnd-light.ttf");
-            normalTypeface = Typeface.createFromAsset(getAssets(), "Futura-Medium.ttf");
+            lightTypeface = TypefaceCache.get(getAssets(), "gothamrnd-light.ttf");
+            normalTypeface = TypefaceCache.get(getAssets(), "Futura-Medium.ttf");
 
-            mStepsRequested = false;
-            mGoogleApiClient = new GoogleApiClient.Builder(OcodoWatchFaceVitsoeDark.this)
-                    .addConnectionCallbacks(this)
-                    .addOnConnectionFailedListener(this)
-                    .addApi(Fitness.HISTORY_API)
-                    .addApi(Fitness.RECORDING_API)
-                    .useDefaultAccount()
-                    .build();
+            mStepRepository = StepRepository.get(OcodoWatchFaceVitsoeDark.this);
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(OcodoWatchFaceVitsoeDark.this)
                     .setStatusBarGravity(Gravity.CENTER)
@@ -199,12 +197,79 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             mQuartzTextPaint.setTextSize(8);
             mQuartzTextPaint.setTextAlign(Paint.Align.CENTER);
 
-            mCalendar = Calendar.getInstance();
+
+            mSettings = new SystemSettingsObserver(OcodoWatchFaceVitsoeDark.this, new SystemSettingsObserver.Listener() {
+                @Override
+                public void onSettingsChanged(SystemSettingsObserver settings) {
+                    mPrerenderer.invalidate();
+                    mDateText.setLocale(settings.getLocale());
+                    mStepText.setLocale(settings.getLocale());
+                    mCompositor.invalidate();
+                    invalidate();
+                }
+            });
+
+            mPrerenderer = new FramePrerenderer(Looper.myLooper(), 1000L, new FramePrerenderer.Renderer() {
+                @Override
+                public void render(Canvas canvas, long timeMillis) {
+                    mTime.update(timeMillis);
+                    mCompositor.draw(canvas, timeMillis, false);
+                }
+            });
+
+            createPaintSets();
+            selectPaints();
+            mDialLayer = new DialLayer(new DialLayer.Painter() {
+                @Override
+                public void paintDial(Canvas canvas) {
+                    drawDial(canvas);
+                }
+            });
+
+            mCompositor = new LayerCompositor(mTime)
+                    .add("dial", LayerCompositor.Cadence.STATIC, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            mDialLayer.draw(canvas, isInAmbientMode());
+                        }
+                    })
+                    .add("date", LayerCompositor.Cadence.PER_DAY, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawDate(canvas);
+                        }
+                    })
+                    .add(STEPS_LAYER, LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSteps(canvas);
+                        }
+                    })
+                    .add("hands", LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawHourAndMinuteHands(canvas);
+                        }
+                    })
+                    .add("second hand", LayerCompositor.Cadence.PER_FRAME, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            drawSecondHand(canvas);
+                        }
+                    });
+
+            if (mStepRepository.hasSteps()) {
+                mStepText.setSteps(mStepRepository.getSteps());
+            }
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mFrameScheduler.stop();
+            mStepRepository.removeListener(mStepsListener);
+            mPrerenderer.release();
+            mDialLayer.release();
+            mCompositor.release();
             super.onDestroy();
         }
 
@@ -215,14 +280,17 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             }
             super.onVisibilityChanged(visible);
             if (visible) {
-                mGoogleApiClient.connect();
+                mStepRepository.addListener(mStepsListener);
                 registerReceiver();
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mSettings.register();
+                mPrerenderer.invalidate();
+                mTime.setTimeZone(mClock.getTimeZone());
+                mCompositor.invalidate();
+                mDateText.invalidate();
             } else {
                 unregisterReceiver();
-                if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
-                    mGoogleApiClient.disconnect();
-                }
+                mSettings.unregister();
+                mStepRepository.removeListener(mStepsListener);
             }
             updateTimer();
         }
@@ -235,6 +303,10 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             super.onApplyWindowInsets(insets);
             Resources resources = getResources();
             detailTextPaint.setTextSize(16);
+            mPrerenderer.invalidate();
+            mDialLayer.invalidate();
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -246,6 +318,11 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
                 Log.d(TAG, "onPropertiesChanged: burn-in protection = " + burnInProtection
                         + ", low-bit ambient = " + mLowBitAmbient);
             }
+            mPrerenderer.invalidate();
+            selectPaints();
+            mDialLayer.setLowBitAmbient(mLowBitAmbient);
+            mCompositor.invalidate();
+            prepareDial();
         }
 
         @Override
@@ -264,6 +341,11 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
                 Log.d(TAG, "onAmbientModeChanged: " + inAmbientMode);
             }
 
+            // Ambient frames are drawn directly; the buffer comes back with the next
+            // interactive frame.
+            mPrerenderer.releaseBuffer();
+            selectPaints();
+            prepareDial();
             invalidate();
             updateTimer();
         }
@@ -271,6 +353,7 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
         @Override
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
             super.onSurfaceChanged(holder, format, width, height);
+            mPrerenderer.invalidate();
             mCenterX = width / 2f;
             mCenterY = height / 2f;
             mWidth = width;
@@ -278,18 +361,21 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             mSecondHandLength = mCenterX * SECOND_HAND_LENGTH_PERCENT;
             sMinuteHandLength = mCenterX * MINUTE_HAND_LENGTH_PERCENT;
             sHourHandLength = mCenterX * HOUR_HAND_LENGTH_PERCENT;
-        }
 
-        @Override
-        public void onDraw(Canvas canvas, Rect bounds) {
-            canvas.drawColor(LIGHT_BG);
+            mMinuteTicks = TickGeometry.ring(60, mCenterX * 0.82f, mCenterX * 0.87f, mCenterX, mCenterY, TickGeometry.ALL);
+            mHourTicks = TickGeometry.ring(12, mCenterX * 0.77f, mCenterX * 0.87f, mCenterX, mCenterY, TickGeometry.ALL);
 
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++)
-                drawRepeatingTicks(canvas, mCenterX * 0.82f, mCenterX * 0.87f, tickIndex, 60, mMinuteTickPaint, true, mCenterX, mCenterY);
+            mPrerenderer.setSurfaceSize(width, height);
+            mDialLayer.setSurfaceSize(width, height);
+            mCompositor.setSurfaceSize(width, height);
+            prepareDial();
+        }
 
+        private void drawDial(Canvas canvas) {
+            canvas.drawColor(LIGHT_BG);
 
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++)
-                drawRepeatingTicks(canvas, mCenterX * 0.77f, mCenterX * 0.87f, tickIndex, 12, mHourTickPaint, true, mCenterX, mCenterY);
+            drawTicks(canvas, mMinuteTicks, mMinuteTickPaint);
+            drawTicks(canvas, mHourTicks, mHourTickPaint);
 
             drawRepeatingTextDigits(canvas, new String[]{"12", "3", "6", "9"},
                     mHourTextPaint, mCenterX, mCenterY, 0.38f, 4, mCenterX * 0.68f);
@@ -307,18 +393,37 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
 
             drawWatchName(canvas, getString(string.ocodo_vitsoe_quartz_text), mCenterY * 0.57f,
                     mWidth, mQuartzTextPaint);
+        }
 
-            drawDayMonthDate(canvas, mStepCountPaint, mWidth * 0.5f, mHeight * 0.70f, "dd MMM");
+        private void prepareDial() {
+            mDialLayer.prepare(isInAmbientMode());
+        }
 
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            final float minutesRotation = getMinuteRotation();
-            final float hoursRotation = getHourRotation();
+        @Override
+        public void onDraw(Canvas canvas, Rect bounds) {
+            long now = mFrameScheduler.getFrameTimeMillis();
+            if (!isInAmbientMode()) {
+                mPrerenderer.present(canvas, now);
+                mPrerenderer.prepare(SECOND_HAND_BEAT.nextBeat(now));
+                return;
+            }
+            mTime.update(now);
+
+            mCompositor.draw(canvas, now, isInAmbientMode());
+        }
 
-            if (!isInAmbientMode()) drawStepsCount(canvas, mStepsTotal, "###,###", "%s ST",
+        private void drawDate(Canvas canvas) {
+            drawDayMonthDate(canvas, mStepCountPaint, mWidth * 0.5f, mHeight * 0.70f, mDateText, mTime.getTimeMillis());
+        }
+
+        private void drawSteps(Canvas canvas) {
+            if (!isInAmbientMode()) drawStepsCount(canvas, mStepText,
                     mWidth / 2, mHeight * 0.75f, detailTextPaint);
+        }
 
-            updateWatchHandStyle();
+        private void drawHourAndMinuteHands(Canvas canvas) {
+            final float minutesRotation = getMinuteRotation();
+            final float hoursRotation = getHourRotation();
 
             canvas.save();
 
@@ -336,53 +441,71 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
                     mCenterY - sMinuteHandLength,
                     mMinuteHandPaint);
 
+            canvas.restore();
+
             canvas.drawCircle(mCenterX, mCenterY, 28, mOuterCenterCirclePaint);
 
             canvas.drawCircle(mCenterX, mCenterY, 22, mCenterCirclePaint);
+        }
 
-            if (!isInAmbientMode()) drawTickingSecondHand(canvas, minutesRotation, mCalendar,
-                    mCenterX, mCenterY, mWidth, SECOND_HAND_CENTER_OFFSET_PERCENT,
-                    mSecondHandLength, mSecondHandPaint);
-
-            canvas.restore();
+        private void drawSecondHand(Canvas canvas) {
+            if (!isInAmbientMode()) {
+                canvas.save();
+                drawTickingSecondHand(canvas, 0, mTime,
+                        mCenterX, mCenterY, mWidth, SECOND_HAND_CENTER_OFFSET_PERCENT,
+                        mSecondHandLength, mSecondHandPaint);
+                canvas.restore();
+            }
         }
 
         private float getHourRotation() {
-            return (mCalendar.get(Calendar.HOUR) * 30) + mCalendar.get(Calendar.MINUTE) / 2f;
+            return mTime.getHourRotation();
         }
 
         private float getMinuteRotation() {
-            return mCalendar.get(Calendar.MINUTE) * 6f;
+            return mTime.getMinuteRotation();
         }
 
         private void updateTimer() {
             if (Log.isLoggable(TAG, Log.DEBUG)) {
                 Log.d(TAG, "updateTimer");
             }
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldUpdateTimeHandlerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            if (shouldFrameSchedulerBeRunning()) {
+                mFrameScheduler.start();
+            } else {
+                mFrameScheduler.stop();
             }
         }
 
-        private boolean shouldUpdateTimeHandlerBeRunning() {
+        private boolean shouldFrameSchedulerBeRunning() {
             return isVisible() && !isInAmbientMode();
         }
 
-        private void updateWatchHandStyle() {
-            if (isInAmbientMode()) {
-                ambientPaint(mHourHandPaint, DARK_HANDS);
-                ambientPaint(mMinuteHandPaint, DARK_HANDS);
-                ambientPaint(mSecondHandPaint, DARK_HANDS);
-                ambientPaint(mHourTickPaint, DARK_HANDS);
-                ambientPaint(mMinuteTickPaint, DARK_HANDS);
-            } else {
-                activePaint(mSecondHandPaint, DARK_HANDS);
-                activePaint(mHourTickPaint, mWatchHandColor);
-                activePaint(mMinuteHandPaint, mWatchHandColor);
-                activePaint(mMinuteTickPaint, mWatchHandColor);
-                activePaint(mHourHandPaint, mWatchHandColor);
-            }
+        private void createPaintSets() {
+            activePaint(mSecondHandPaint, DARK_HANDS);
+            activePaint(mHourTickPaint, mWatchHandColor);
+            activePaint(mMinuteHandPaint, mWatchHandColor);
+            activePaint(mMinuteTickPaint, mWatchHandColor);
+            activePaint(mHourHandPaint, mWatchHandColor);
+
+            mHourHandPaints = PaintSet.forStroke(mHourHandPaint, DARK_HANDS);
+            mMinuteHandPaints = PaintSet.forStroke(mMinuteHandPaint, DARK_HANDS);
+            mSecondHandPaints = PaintSet.forStroke(mSecondHandPaint, DARK_HANDS);
+            mHourTickPaints = PaintSet.forStroke(mHourTickPaint, DARK_HANDS);
+            mMinuteTickPaints = PaintSet.forStroke(mMinuteTickPaint, DARK_HANDS);
+        }
+
+        /**
+         * Points the paint fields at the variants for the current mode. Called when the mode
+         * or the low-bit property changes, never while drawing a frame.
+         */
+        private void selectPaints() {
+            boolean ambient = isInAmbientMode();
+            mHourHandPaint = mHourHandPaints.select(ambient, mLowBitAmbient);
+            mMinuteHandPaint = mMinuteHandPaints.select(ambient, mLowBitAmbient);
+            mSecondHandPaint = mSecondHandPaints.select(ambient, mLowBitAmbient);
+            mHourTickPaint = mHourTickPaints.select(ambient, mLowBitAmbient);
+            mMinuteTickPaint = mMinuteTickPaints.select(ambient, mLowBitAmbient);
         }
 
         private void registerReceiver() {
@@ -391,6 +514,7 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             }
             mRegisteredReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             OcodoWatchFaceVitsoeDark.this.registerReceiver(mReceiver, filter);
         }
 
@@ -401,85 +525,5 @@ public class OcodoWatchFaceVitsoeDark extends CanvasWatchFaceService {
             mRegisteredReceiver = false;
             OcodoWatchFaceVitsoeDark.this.unregisterReceiver(mReceiver);
         }
-
-        @Override
-        public void onConnected(@Nullable Bundle connectionHint) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnected: " + connectionHint);
-            }
-            mStepsRequested = false;
-            subscribeToSteps(new ResultCallback<Status>() {
-                @Override
-                public void onResult(Status status) {
-                    if (status.isSuccess()) {
-                        if (status.getStatusCode()
-                                == FitnessStatusCodes.SUCCESS_ALREADY_SUBSCRIBED) {
-                            Log.i(TAG, "Existing subscription for activity detected.");
-                        } else {
-                            Log.i(TAG, "Successfully subscribed!");
-                        }
-                    } else {
-                        Log.i(TAG, "There was a problem subscribing.");
-                    }
-                }
-            });
-            getTotalSteps();
-        }
-
-        private void getTotalSteps() {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "getTotalSteps()");
-            }
-
-            if ((mGoogleApiClient != null)
-                    && (mGoogleApiClient.isConnected())
-                    && (!mStepsRequested)) {
-
-                mStepsRequested = true;
-
-                PendingResult<DailyTotalResult> stepsResult =
-                        Fitness.HistoryApi.readDailyTotal(
-                                mGoogleApiClient,
-                                DataType.TYPE_STEP_COUNT_DELTA);
-
-                stepsResult.setResultCallback(this);
-            }
-        }
-
-        private void subscribeToSteps(ResultCallback<Status> resultCallback) {
-            Fitness.RecordingApi.subscribe(mGoogleApiClient, DataType.TYPE_STEP_COUNT_DELTA)
-                    .setResultCallback(resultCallback);
-        }
-
-        @Override
-        public void onConnectionSuspended(int cause) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnectionSuspended: " + cause);
-            }
-        }
-
-        @Override
-        public void onConnectionFailed(ConnectionResult result) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onConnectionFailed: " + result);
-            }
-        }
-
-        @Override
-        public void onResult(DailyTotalResult dailyTotalResult) {
-            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                Log.d(TAG, "mGoogleApiAndFitCallbacks.onResult(): " + dailyTotalResult);
-            }
-            mStepsRequested = false;
-            if (dailyTotalResult.getStatus().isSuccess()) {
-                List<DataPoint> points = dailyTotalResult.getTotal().getDataPoints();
-                if (!points.isEmpty()) {
-                    mStepsTotal = points.get(0).getValue(Field.FIELD_STEPS).asInt();
-                    Log.d(TAG, "steps updated: " + mStepsTotal);
-                }
-            } else {
-                Log.e(TAG, "onResult() failed! " + dailyTotalResult.getStatus().getStatusMessage());
-            }
-        }
     }
 }
@@ -0,0 +1,53 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Paint;
+
+/**
+ * Interactive, ambient and low-bit ambient variants of one paint, built once up front.
+ *
+ * Switching modes only picks a different instance, so no paint is mutated while a frame
+ * is being drawn. Variants that look the same share an instance.
+ */
+class PaintSet {
+
+    private final Paint mInteractive;
+    private final Paint mAmbient;
+    private final Paint mLowBitAmbient;
+
+    private PaintSet(Paint interactive, Paint ambient, Paint lowBitAmbient) {
+        mInteractive = interactive;
+        mAmbient = ambient;
+        mLowBitAmbient = lowBitAmbient;
+    }
+
+    /**
+     * Hands and ticks: ambient takes {@code ambientColor}, without antialiasing or shadow.
+     */
+    static PaintSet forStroke(Paint interactive, int ambientColor) {
+        Paint ambient = new Paint(interactive);
+        OcodoWatchFaceUtils.ambientPaint(ambient, ambientColor);
+        return new PaintSet(interactive, ambient, ambient);
+    }
+
+    /**
+     * Text keeps its look in ambient and only loses antialiasing on low-bit screens.
+     */
+    static PaintSet forText(Paint interactive) {
+        Paint lowBitAmbient = new Paint(interactive);
+        lowBitAmbient.setAntiAlias(false);
+        return new PaintSet(interactive, interactive, lowBitAmbient);
+    }
+
+    Paint select(boolean ambient, boolean lowBitAmbient) {
+        if (!ambient) {
+            return mInteractive;
+        }
+        return lowBitAmbient ? mLowBitAmbient : mAmbient;
+    }
+
+    void setTextSize(float textSize) {
+        mInteractive.setTextSize(textSize);
+        mAmbient.setTextSize(textSize);
+        mLowBitAmbient.setTextSize(textSize);
+    }
+}
@@ -0,0 +1,91 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.util.Log;
+
+/**
+ * The hardware step counter, batched in the sensor hub FIFO.
+ *
+ * {@link Sensor#TYPE_STEP_COUNTER} is a non-wakeup sensor counting steps since boot.
+ * Registered with a report latency, the hub holds events back and hands them over in one
+ * batch, at the latest when the application processor wakes for something else, so
+ * listening costs no wakeups of its own.
+ */
+class StepCounterSource implements SensorEventListener {
+
+    private static final String TAG = "StepCounterSource";
+
+    /**
+     * How long the sensor hub may hold on to counter events before reporting them.
+     */
+    private static final int MAX_REPORT_LATENCY_US = 10 * 1000 * 1000;
+
+    interface Listener {
+        void onStepCounterChanged(int stepsSinceBoot);
+    }
+
+    private final SensorManager mSensorManager;
+    private final Sensor mSensor;
+    private final Listener mListener;
+    private boolean mRegistered;
+    private boolean mHasCounter;
+    private int mCounter;
+
+    StepCounterSource(Context context, Listener listener) {
+        mListener = listener;
+        mSensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        mSensor = mSensorManager == null ? null : mSensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+    }
+
+    /**
+     * Starts listening; does nothing on a device without a step counter, where
+     * {@link #isRunning()} stays false.
+     */
+    void start() {
+        if (mRegistered || mSensor == null) {
+            return;
+        }
+        mRegistered = mSensorManager.registerListener(this, mSensor,
+                SensorManager.SENSOR_DELAY_NORMAL, MAX_REPORT_LATENCY_US);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "start: registered = " + mRegistered
+                    + ", fifo = " + mSensor.getFifoMaxEventCount());
+        }
+    }
+
+    /**
+     * Stops listening; {@link #isRunning()} stays false until the first event after the
+     * next start.
+     */
+    void stop() {
+        if (!mRegistered) {
+            return;
+        }
+        mRegistered = false;
+        mHasCounter = false;
+        mSensorManager.unregisterListener(this);
+    }
+
+    boolean isRunning() {
+        return mRegistered && mHasCounter;
+    }
+
+    int getCounter() {
+        return mCounter;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        mCounter = (int) event.values[0];
+        mHasCounter = true;
+        mListener.onStepCounterChanged(mCounter);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+}
@@ -0,0 +1,295 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.fitness.data.DataPoint;
+import com.google.android.gms.fitness.data.Field;
+import com.google.android.gms.fitness.result.DailyTotalResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Today's step total, shared by every engine in the process.
+ *
+ * One {@link FitnessConnection} is held while at least one engine listens, and a
+ * refresh while a daily total read is still in flight joins that read instead of issuing
+ * another. Every listener is told when the total changes. Everything runs on the main
+ * thread, like the engines themselves.
+ *
+ * Between reads, steps from the hardware {@link StepCounterSource} are added onto the
+ * last daily total, so the count moves within seconds without any IPC. The Fitness read
+ * stays the source of truth: each result replaces the estimate and rebases the counter,
+ * and while the counter runs, refreshes are held back to one read per
+ * {@link #RECONCILE_INTERVAL_MS}. On a device without the sensor the counter never runs,
+ * so every refresh reads Fitness as it did before the counter.
+ *
+ * The total is also saved to a {@link StepSnapshotStore}, at most once per
+ * {@link #SNAPSHOT_INTERVAL_MS} for counter estimates, and today's snapshot is loaded
+ * when the repository is created so engines start from it rather than from 0. Every
+ * published total also feeds the minute by minute {@link IntradaySteps}, saved with it.
+ */
+class StepRepository {
+
+    private static final String TAG = "StepRepository";
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final long RECONCILE_INTERVAL_MS = 15 * 60 * 1000L;
+    private static final long SNAPSHOT_INTERVAL_MS = 60 * 1000L;
+
+    interface Listener {
+        void onStepsChanged(int steps);
+    }
+
+    private static StepRepository sInstance;
+
+    private final FitnessConnection mConnection;
+    private final StepCounterSource mStepCounter;
+    private final StepSnapshotStore mSnapshot;
+    private final Clock mClock = OcodoWatchFaceUtils.getClock();
+    private final List<Listener> mListeners = new ArrayList<Listener>();
+    private final IntradaySteps mIntraday = new IntradaySteps();
+    private boolean mStepsRequested;
+    private boolean mHasSteps;
+    private int mSteps;
+
+    /**
+     * The last daily total read from Fitness, the counter reading it corresponds to (-1
+     * when unknown) and the local day it counts.
+     */
+    private int mBaseSteps;
+    private int mBaseCounter = -1;
+    private long mBaseDay;
+    private long mLastReadMillis;
+    private boolean mSnapshotDirty;
+    private long mLastSavedMillis;
+
+    static StepRepository get(Context context) {
+        if (sInstance == null) {
+            sInstance = new StepRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private StepRepository(Context context) {
+        mConnection = new FitnessConnection(context, new FitnessConnection.Listener() {
+            @Override
+            public void onConnected() {
+                mStepsRequested = false;
+                readDailyTotal();
+            }
+
+            @Override
+            public void onDisconnected() {
+                mStepsRequested = false;
+            }
+        });
+        mStepCounter = new StepCounterSource(context, new StepCounterSource.Listener() {
+            @Override
+            public void onStepCounterChanged(int stepsSinceBoot) {
+                integrate(stepsSinceBoot);
+            }
+        });
+
+        mSnapshot = new StepSnapshotStore(context);
+        long now = mClock.currentTimeMillis();
+        int steps = mSnapshot.load(localDay(now));
+        if (steps >= 0) {
+            mHasSteps = true;
+            mSteps = steps;
+            mBaseSteps = steps;
+            mBaseDay = localDay(now);
+        }
+        mSnapshot.loadIntraday(mIntraday, localDay(now));
+    }
+
+    /**
+     * Connects on the first listener, or refreshes if the connection outlived the last
+     * one, and hands a known total straight to the new listener.
+     */
+    void addListener(Listener listener) {
+        if (mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if (mListeners.size() == 1) {
+            mConnection.acquire();
+            mStepCounter.start();
+            refresh();
+        }
+        if (hasSteps()) {
+            listener.onStepsChanged(mSteps);
+        }
+    }
+
+    /**
+     * Lets the connection go once the last listener is gone; it lingers for the
+     * {@link FitnessConnection} grace period.
+     */
+    void removeListener(Listener listener) {
+        if (!mListeners.remove(listener) || !mListeners.isEmpty()) {
+            return;
+        }
+        mStepCounter.stop();
+        mBaseCounter = -1;
+        saveSnapshot(true);
+        mConnection.release();
+    }
+
+    /**
+     * Today's total is known, possibly only from the saved snapshot.
+     */
+    boolean hasSteps() {
+        return mHasSteps && mBaseDay == localDay(mClock.currentTimeMillis());
+    }
+
+    int getSteps() {
+        return mSteps;
+    }
+
+    /**
+     * Today's steps per minute; listeners hear about every change to it. Rolled over to
+     * the current day first, so a face drawing after midnight gets an empty day rather
+     * than yesterday's. Totals are only read or counted while a listener is registered,
+     * so steps walked while every face was hidden all land in the minute of the first
+     * total after it.
+     */
+    IntradaySteps getIntraday() {
+        mIntraday.rollTo(localMillis(mClock.currentTimeMillis()));
+        return mIntraday;
+    }
+
+    /**
+     * Asks for a fresh total unless one is already on its way, or the step counter is
+     * keeping the last one current and it is not yet due for reconciling.
+     */
+    void refresh() {
+        if (mStepCounter.isRunning() && mBaseCounter >= 0
+                && mClock.currentTimeMillis() - mLastReadMillis < RECONCILE_INTERVAL_MS) {
+            return;
+        }
+        readDailyTotal();
+    }
+
+    /**
+     * Reads today's total, remembering which day and counter reading it was asked for.
+     */
+    private void readDailyTotal() {
+        if (mConnection.isConnected() && !mStepsRequested) {
+            mStepsRequested = true;
+            final int requestCounter = mStepCounter.isRunning() ? mStepCounter.getCounter() : -1;
+            final long requestDay = localDay(mClock.currentTimeMillis());
+            mConnection.readDailyTotal().setResultCallback(new ResultCallback<DailyTotalResult>() {
+                @Override
+                public void onResult(DailyTotalResult dailyTotalResult) {
+                    onDailyTotal(dailyTotalResult, requestCounter, requestDay);
+                }
+            });
+        }
+    }
+
+    /**
+     * A result for a day that has since ended would pass yesterday's total off as
+     * today's, so it is dropped and today's asked for instead.
+     */
+    private void onDailyTotal(DailyTotalResult dailyTotalResult, int requestCounter, long requestDay) {
+        mStepsRequested = false;
+        if (!dailyTotalResult.getStatus().isSuccess()) {
+            Log.e(TAG, "onResult() failed! " + dailyTotalResult.getStatus().getStatusMessage());
+            return;
+        }
+        List<DataPoint> points = dailyTotalResult.getTotal().getDataPoints();
+        if (points.isEmpty()) {
+            return;
+        }
+        long now = mClock.currentTimeMillis();
+        if (localDay(now) != requestDay) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "dropping daily total read before midnight");
+            }
+            readDailyTotal();
+            return;
+        }
+        mBaseSteps = points.get(0).getValue(Field.FIELD_STEPS).asInt();
+        mBaseCounter = requestCounter;
+        mBaseDay = requestDay;
+        mLastReadMillis = now;
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "daily total " + mBaseSteps + ", estimate was " + mSteps);
+        }
+        publish(mStepCounter.isRunning() && mBaseCounter >= 0
+                ? mBaseSteps + counterDelta(mStepCounter.getCounter())
+                : mBaseSteps);
+        saveSnapshot(true);
+    }
+
+    /**
+     * Adds counter steps onto the last daily total. Without a total to add to, the first
+     * reading only becomes the baseline.
+     */
+    private void integrate(int stepsSinceBoot) {
+        if (!mHasSteps) {
+            return;
+        }
+        long now = mClock.currentTimeMillis();
+        if (mBaseCounter < 0) {
+            mBaseCounter = stepsSinceBoot;
+        } else if (localDay(now) != mBaseDay) {
+            // Midnight: count today from this reading and have Fitness fill in the steps
+            // taken between midnight and now straight away.
+            mBaseSteps = 0;
+            mBaseCounter = stepsSinceBoot;
+            mBaseDay = localDay(now);
+            mLastReadMillis = 0;
+        }
+        publish(mBaseSteps + counterDelta(stepsSinceBoot));
+        if (now - mLastReadMillis >= RECONCILE_INTERVAL_MS) {
+            readDailyTotal();
+        }
+    }
+
+    /**
+     * Steps counted since the baseline; a counter that went backwards was reset by a
+     * reboot, so the baseline moves to it.
+     */
+    private int counterDelta(int stepsSinceBoot) {
+        if (stepsSinceBoot < mBaseCounter) {
+            mBaseCounter = stepsSinceBoot;
+        }
+        return stepsSinceBoot - mBaseCounter;
+    }
+
+    private void publish(int steps) {
+        if (mHasSteps && steps == mSteps) {
+            return;
+        }
+        mHasSteps = true;
+        mSteps = steps;
+        mSnapshotDirty = true;
+        mIntraday.record(steps, localMillis(mClock.currentTimeMillis()));
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onStepsChanged(steps);
+        }
+        saveSnapshot(false);
+    }
+
+    private void saveSnapshot(boolean force) {
+        long now = mClock.currentTimeMillis();
+        if (!mSnapshotDirty || (!force && now - mLastSavedMillis < SNAPSHOT_INTERVAL_MS)) {
+            return;
+        }
+        mSnapshotDirty = false;
+        mLastSavedMillis = now;
+        mSnapshot.save(mSteps, localDay(now), now, mIntraday);
+    }
+
+    private long localDay(long timeMillis) {
+        return localMillis(timeMillis) / DAY_MS;
+    }
+
+    private long localMillis(long timeMillis) {
+        return timeMillis + mClock.getTimeZone().getOffset(timeMillis);
+    }
+}
@@ -0,0 +1,55 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * The last known step total and today's {@link IntradaySteps}, kept across engine and
+ * process restarts.
+ *
+ * Reading is a synchronous preferences lookup, cheap enough for onCreate, so a new engine
+ * draws the right count on its first frame instead of 0. Saving goes through
+ * {@link SharedPreferences.Editor#apply()}, which writes to disk off the main thread.
+ */
+class StepSnapshotStore {
+
+    private static final String PREFERENCES_NAME = "step_snapshot";
+    private static final String KEY_STEPS = "steps";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_TIME = "time";
+    private static final String KEY_INTRADAY = "intraday";
+
+    private final SharedPreferences mPreferences;
+
+    StepSnapshotStore(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return the steps saved for local day {@code day}, or -1 if the snapshot is from
+     * another day or there is none
+     */
+    int load(long day) {
+        if (mPreferences.getLong(KEY_DAY, Long.MIN_VALUE) != day) {
+            return -1;
+        }
+        return mPreferences.getInt(KEY_STEPS, -1);
+    }
+
+    /**
+     * Restores today's minute history into {@code intraday}, if one was saved for
+     * {@code day}.
+     */
+    boolean loadIntraday(IntradaySteps intraday, long day) {
+        return intraday.decode(mPreferences.getString(KEY_INTRADAY, null), day);
+    }
+
+    void save(int steps, long day, long timeMillis, IntradaySteps intraday) {
+        mPreferences.edit()
+                .putInt(KEY_STEPS, steps)
+                .putLong(KEY_DAY, day)
+                .putLong(KEY_TIME, timeMillis)
+                .putString(KEY_INTRADAY, intraday.encode())
+                .apply();
+    }
+}
@@ -0,0 +1,75 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Today's activity as a bar sparkline, one bar per quarter hour, kept in a bitmap.
+ *
+ * Each draw repaints only the bars from the one last drawn up to the current one, which
+ * during the day is just the newest; the whole chart is repainted when the day, the size
+ * or the vertical scale changes, or a corrected total took steps back out of earlier
+ * bars. The scale grows in {@link #SCALE_STEP} increments so that
+ * a busy quarter hour rarely forces a full repaint.
+ */
+class StepSparkline {
+
+    private static final int BUCKET_MINUTES = IntradaySteps.BUCKET_MINUTES;
+    private static final int BARS = IntradaySteps.MINUTES_PER_DAY / BUCKET_MINUTES;
+    private static final int SCALE_STEP = 250;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private int mWidth;
+    private int mHeight;
+    private long mDay = Long.MIN_VALUE;
+    private int mScale;
+    private int mCorrections;
+    private int mDrawnBar = -1;
+
+    void setSize(int width, int height) {
+        if (width != mWidth || height != mHeight) {
+            mWidth = width;
+            mHeight = height;
+            release();
+        }
+    }
+
+    void draw(Canvas canvas, IntradaySteps steps, float left, float top, Paint paint) {
+        if (mWidth <= 0 || mHeight <= 0) {
+            return;
+        }
+        if (mBitmap == null) {
+            mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+            mDrawnBar = -1;
+        }
+
+        int maxBucket = steps.getMaxBucket();
+        int scale = (maxBucket / SCALE_STEP + 1) * SCALE_STEP;
+        int newest = steps.getLastMinute() / BUCKET_MINUTES;
+        float barWidth = mWidth / (float) BARS;
+        if (mDrawnBar < 0 || newest < mDrawnBar || steps.getDay() != mDay || scale != mScale
+                || steps.getCorrections() != mCorrections) {
+            mDay = steps.getDay();
+            mScale = scale;
+            mCorrections = steps.getCorrections();
+            OcodoWatchFaceUtils.drawStepBars(mCanvas, steps, BUCKET_MINUTES, 0, BARS, barWidth, mHeight, scale, paint);
+        } else {
+            OcodoWatchFaceUtils.drawStepBars(mCanvas, steps, BUCKET_MINUTES, mDrawnBar, newest + 1, barWidth, mHeight, scale, paint);
+        }
+        mDrawnBar = newest;
+
+        canvas.drawBitmap(mBitmap, left, top, null);
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mCanvas = null;
+        }
+        mDrawnBar = -1;
+    }
+}
@@ -0,0 +1,65 @@
+package info.ocodo.android.wearable.watchface;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Step count text, rebuilt only when the count or the locale changes.
+ *
+ * The fitness callback pushes new totals through {@link #setSteps(int)}; the frame path
+ * only reads {@link #getText()} and never formats.
+ */
+class StepTextCache {
+
+    private final String mNumberPattern;
+    private final String mTextFormat;
+    private DecimalFormat mNumberFormat;
+    private Locale mLocale = Locale.getDefault();
+    private int mSteps;
+    private String mText;
+
+    /**
+     * @param numberPattern DecimalFormat pattern for the count, e.g. "###,###"
+     * @param textFormat    String.format pattern taking the formatted count, e.g. "%s steps"
+     */
+    StepTextCache(String numberPattern, String textFormat) {
+        mNumberPattern = numberPattern;
+        mTextFormat = textFormat;
+        rebuild();
+    }
+
+    /**
+     * @return true if the text changed and anything showing it needs redrawing
+     */
+    boolean setSteps(int steps) {
+        if (steps == mSteps) {
+            return false;
+        }
+        mSteps = steps;
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Re-formats the current count for a new locale.
+     */
+    void setLocale(Locale locale) {
+        if (!locale.equals(mLocale)) {
+            mLocale = locale;
+            mNumberFormat = null;
+            rebuild();
+        }
+    }
+
+    String getText() {
+        return mText;
+    }
+
+    private void rebuild() {
+        if (mNumberFormat == null) {
+            mNumberFormat = new DecimalFormat(mNumberPattern, DecimalFormatSymbols.getInstance(mLocale));
+        }
+        mText = String.format(mTextFormat, mNumberFormat.format(mSteps));
+    }
+}
@@ -0,0 +1,59 @@
+package info.ocodo.android.wearable.watchface;
+
+/**
+ * Maps monotonic frame timestamps to wall clock time for sweeping hands.
+ *
+ * Reading the wall clock on every frame lets both the delay before the read and any
+ * clock adjustment show up as an uneven sweep. Here the wall clock is only sampled once
+ * a second to anchor a monotonic offset. Corrections below {@link #STEP_THRESHOLD_MILLIS}
+ * are slewed a couple of milliseconds at a time, out of sight; anything larger would take
+ * minutes to slew away, so it is stepped, and so is any time change the engine reports
+ * through {@link #reset()}.
+ */
+class SweepTimebase {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long ANCHOR_INTERVAL_NANOS = 1000 * NANOS_PER_MILLI;
+    private static final long MAX_SLEW_MILLIS = 2L;
+    private static final long STEP_THRESHOLD_MILLIS = 100L;
+
+    private final Clock mClock;
+    private boolean mAnchored;
+    private long mAnchorNanos;
+    private long mOffsetMillis;
+
+    SweepTimebase(Clock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Wall clock time for a {@link System#nanoTime()} based timestamp, such as a
+     * Choreographer vsync time.
+     */
+    long toWallMillis(long monotonicNanos) {
+        long nowNanos = System.nanoTime();
+        if (!mAnchored || nowNanos - mAnchorNanos >= ANCHOR_INTERVAL_NANOS) {
+            anchor(nowNanos);
+        }
+        return monotonicNanos / NANOS_PER_MILLI + mOffsetMillis;
+    }
+
+    /**
+     * Forgets the anchor, so the next frame steps straight to the wall clock.
+     */
+    void reset() {
+        mAnchored = false;
+    }
+
+    private void anchor(long nowNanos) {
+        long offset = mClock.currentTimeMillis() - nowNanos / NANOS_PER_MILLI;
+        long error = offset - mOffsetMillis;
+        if (!mAnchored || Math.abs(error) >= STEP_THRESHOLD_MILLIS) {
+            mOffsetMillis = offset;
+        } else {
+            mOffsetMillis += Math.max(-MAX_SLEW_MILLIS, Math.min(MAX_SLEW_MILLIS, error));
+        }
+        mAnchorNanos = nowNanos;
+        mAnchored = true;
+    }
+}
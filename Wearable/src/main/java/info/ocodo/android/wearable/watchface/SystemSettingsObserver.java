@@ -0,0 +1,95 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.provider.Settings;
+import android.text.format.DateFormat;
+
+import java.util.Locale;
+
+/**
+ * Keeps the 12/24 hour setting and the locale in plain fields.
+ *
+ * {@link DateFormat#is24HourFormat} is a settings read that can cross the binder, so it
+ * is only repeated when {@link Settings.System#TIME_12_24} changes; the locale is only
+ * re-read on {@link Intent#ACTION_LOCALE_CHANGED}. Engines are told about changes and the
+ * frame path just reads the getters.
+ */
+class SystemSettingsObserver {
+
+    interface Listener {
+        void onSettingsChanged(SystemSettingsObserver settings);
+    }
+
+    private final Context mContext;
+    private final Listener mListener;
+    private boolean mIs24HourFormat;
+    private Locale mLocale;
+    private boolean mRegistered;
+
+    private final ContentObserver mTimeFormatObserver = new ContentObserver(new Handler()) {
+        @Override
+        public void onChange(boolean selfChange) {
+            refresh();
+        }
+    };
+
+    private final BroadcastReceiver mLocaleReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            refresh();
+        }
+    };
+
+    SystemSettingsObserver(Context context, Listener listener) {
+        mContext = context;
+        mListener = listener;
+        mIs24HourFormat = DateFormat.is24HourFormat(context);
+        mLocale = Locale.getDefault();
+    }
+
+    /**
+     * Starts observing, first catching up on anything that changed while unregistered.
+     */
+    void register() {
+        if (mRegistered) {
+            return;
+        }
+        mRegistered = true;
+        mContext.getContentResolver().registerContentObserver(
+                Settings.System.getUriFor(Settings.System.TIME_12_24), false, mTimeFormatObserver);
+        mContext.registerReceiver(mLocaleReceiver, new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
+        refresh();
+    }
+
+    void unregister() {
+        if (!mRegistered) {
+            return;
+        }
+        mRegistered = false;
+        mContext.getContentResolver().unregisterContentObserver(mTimeFormatObserver);
+        mContext.unregisterReceiver(mLocaleReceiver);
+    }
+
+    boolean is24HourFormat() {
+        return mIs24HourFormat;
+    }
+
+    Locale getLocale() {
+        return mLocale;
+    }
+
+    private void refresh() {
+        boolean is24HourFormat = DateFormat.is24HourFormat(mContext);
+        Locale locale = Locale.getDefault();
+        if (is24HourFormat != mIs24HourFormat || !locale.equals(mLocale)) {
+            mIs24HourFormat = is24HourFormat;
+            mLocale = locale;
+            mListener.onSettingsChanged(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package info.ocodo.android.wearable.watchface;
+
+/**
+ * Tick ring geometry, precomputed once per surface.
+ *
+ * A ring of {@code count} ticks between an inner and outer radius is packed into a
+ * float[] of (startX, startY, stopX, stopY) quadruples, so it can be stroked with a
+ * single Canvas.drawLines call. A filter leaves out ticks another ring already marks.
+ */
+final class TickGeometry {
+
+    interface TickFilter {
+        boolean include(int index);
+    }
+
+    static final TickFilter ALL = new TickFilter() {
+        @Override
+        public boolean include(int index) {
+            return true;
+        }
+    };
+
+    private TickGeometry() {
+    }
+
+    /**
+     * Leaves out every {@code step}th tick, e.g. the hour positions of a minute ring.
+     */
+    static TickFilter skipEvery(final int step) {
+        return new TickFilter() {
+            @Override
+            public boolean include(int index) {
+                return index % step != 0;
+            }
+        };
+    }
+
+    static TickFilter skipIndex(final int skipped) {
+        return new TickFilter() {
+            @Override
+            public boolean include(int index) {
+                return index != skipped;
+            }
+        };
+    }
+
+    static int countTicks(int count, TickFilter filter) {
+        int included = 0;
+        for (int tickIndex = 0; tickIndex < count; tickIndex++) {
+            if (filter.include(tickIndex)) {
+                included++;
+            }
+        }
+        return included;
+    }
+
+    static float[] ring(int count, float innerRadius, float outerRadius,
+                        float centerX, float centerY, TickFilter filter) {
+        float[] points = new float[countTicks(count, filter) * 4];
+        fillRing(points, 0, count, innerRadius, outerRadius, centerX, centerY, filter);
+        return points;
+    }
+
+    /**
+     * Writes the ring into {@code points} starting at {@code offset}.
+     *
+     * @return the offset just past the last written coordinate
+     */
+    static int fillRing(float[] points, int offset, int count, float innerRadius, float outerRadius,
+                        float centerX, float centerY, TickFilter filter) {
+        int i = offset;
+        for (int tickIndex = 0; tickIndex < count; tickIndex++) {
+            if (!filter.include(tickIndex)) {
+                continue;
+            }
+            double tickRot = tickIndex * Math.PI * 2 / count;
+            float sin = (float) Math.sin(tickRot);
+            float cos = (float) -Math.cos(tickRot);
+            points[i++] = centerX + sin * innerRadius;
+            points[i++] = centerY + cos * innerRadius;
+            points[i++] = centerX + sin * outerRadius;
+            points[i++] = centerY + cos * outerRadius;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,169 @@
+package info.ocodo.android.wearable.watchface;
+
+import java.util.TimeZone;
+
+/**
+ * Splits one epoch millisecond reading into local clock fields and hand angles.
+ *
+ * Stands in for {@link java.util.Calendar} on the frame path: the zone offset is looked
+ * up once and kept until the next offset transition (found by bisection), after which
+ * every field is plain integer arithmetic on local millis.
+ */
+class TimeDecomposer {
+
+    private static final long SECOND_MS = 1000L;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    /**
+     * How far ahead to look for the next transition. Zones never change offset twice
+     * within this window, so a transition cannot slip between two probes.
+     */
+    private static final long TRANSITION_HORIZON_MS = 6 * HOUR_MS;
+
+    private TimeZone mTimeZone;
+    private int mOffset;
+    private long mOffsetValidFrom = Long.MAX_VALUE;
+    private long mOffsetValidUntil = Long.MIN_VALUE;
+
+    private long mTimeMillis;
+    private int mHourOfDay;
+    private int mMinute;
+    private int mSecond;
+    private int mMillisecond;
+
+    TimeDecomposer(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        mOffsetValidFrom = Long.MAX_VALUE;
+        mOffsetValidUntil = Long.MIN_VALUE;
+    }
+
+    void update(long timeMillis) {
+        mTimeMillis = timeMillis;
+
+        long millisOfDay = floorMod(toLocalMillis(timeMillis), DAY_MS);
+        mHourOfDay = (int) (millisOfDay / HOUR_MS);
+        mMinute = (int) (millisOfDay / MINUTE_MS % 60);
+        mSecond = (int) (millisOfDay / SECOND_MS % 60);
+        mMillisecond = (int) (millisOfDay % SECOND_MS);
+    }
+
+    /**
+     * {@code timeMillis} shifted by the zone offset, without touching the decomposed
+     * fields; only looks the offset up again past the next transition.
+     */
+    long toLocalMillis(long timeMillis) {
+        if (timeMillis < mOffsetValidFrom || timeMillis >= mOffsetValidUntil) {
+            refreshOffset(timeMillis);
+        }
+        return timeMillis + mOffset;
+    }
+
+    long getTimeMillis() {
+        return mTimeMillis;
+    }
+
+    int getHourOfDay() {
+        return mHourOfDay;
+    }
+
+    /**
+     * Hour on the 12 hour dial, 0 to 11, like {@link java.util.Calendar#HOUR}.
+     */
+    int getHour() {
+        return mHourOfDay % 12;
+    }
+
+    int getMinute() {
+        return mMinute;
+    }
+
+    int getSecond() {
+        return mSecond;
+    }
+
+    int getMillisecond() {
+        return mMillisecond;
+    }
+
+    int getMillisOfMinute() {
+        return mSecond * 1000 + mMillisecond;
+    }
+
+    boolean isPm() {
+        return mHourOfDay >= 12;
+    }
+
+    float getHourRotation() {
+        return (getHour() * 30) + mMinute / 2f;
+    }
+
+    float getMinuteRotation() {
+        return mMinute * 6f;
+    }
+
+    float getTickingSecondRotation() {
+        return mSecond * 6f;
+    }
+
+    /**
+     * Second hand angle for a hand stepping {@code beatsPerSecond} times a second.
+     */
+    float getBeatingSecondRotation(int beatsPerSecond) {
+        int beat = mMillisecond * beatsPerSecond / 1000;
+        return (mSecond + beat / (float) beatsPerSecond) * 6f;
+    }
+
+    float getSweepingSecondRotation() {
+        return ((mSecond * 1000) + mMillisecond) * 0.006f;
+    }
+
+    /**
+     * Second hand angle for a railway clock hand that sweeps the dial in
+     * {@code sweepMillis} and then rests at 12 until the minute changes.
+     */
+    float getStopToGoSecondRotation(long sweepMillis) {
+        int millisOfMinute = getMillisOfMinute();
+        if (millisOfMinute >= sweepMillis) {
+            return 0f;
+        }
+        return millisOfMinute * 360f / sweepMillis;
+    }
+
+    private void refreshOffset(long timeMillis) {
+        mOffset = mTimeZone.getOffset(timeMillis);
+        mOffsetValidFrom = timeMillis;
+        mOffsetValidUntil = nextTransition(timeMillis);
+    }
+
+    /**
+     * First instant after {@code from} with a different offset, or the end of the search
+     * horizon if there is none before it.
+     */
+    private long nextTransition(long from) {
+        long high = from + TRANSITION_HORIZON_MS;
+        if (mTimeZone.getOffset(high) == mOffset) {
+            return high;
+        }
+        long low = from;
+        while (high - low > 1) {
+            long mid = low + (high - low) / 2;
+            if (mTimeZone.getOffset(mid) == mOffset) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    private static long floorMod(long value, long divisor) {
+        long mod = value % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+}
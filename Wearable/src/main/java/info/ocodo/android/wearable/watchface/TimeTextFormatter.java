@@ -0,0 +1,77 @@
+package info.ocodo.android.wearable.watchface;
+
+/**
+ * Writes the digital clock fields into reusable char buffers.
+ *
+ * Hours, minutes, seconds and the AM/PM marker are kept as char[] so the frame path can
+ * pass them straight to Canvas.drawText(char[], ...) without String.format, boxing or any
+ * other allocation.
+ */
+final class TimeTextFormatter {
+
+    private final char[] mHour = new char[2];
+    private final char[] mMinute = new char[2];
+    private final char[] mSecond = new char[2];
+    private final char[] mAm;
+    private final char[] mPm;
+    private char[] mAmPm;
+    private int mHourLength;
+
+    TimeTextFormatter(String am, String pm) {
+        mAm = am.toCharArray();
+        mPm = pm.toCharArray();
+        mAmPm = mAm;
+    }
+
+    /**
+     * In 12 hour mode the hour is not zero padded and midnight/noon read as 12, as before.
+     */
+    void setTime(int hourOfDay, int minute, int second, boolean is24Hour) {
+        if (is24Hour) {
+            mHourLength = writeTwoDigits(hourOfDay, mHour);
+        } else {
+            int hour = hourOfDay % 12;
+            if (hour == 0) {
+                hour = 12;
+            }
+            mHourLength = writeNumber(hour, mHour);
+        }
+        writeTwoDigits(minute, mMinute);
+        writeTwoDigits(second, mSecond);
+        mAmPm = hourOfDay < 12 ? mAm : mPm;
+    }
+
+    char[] getHour() {
+        return mHour;
+    }
+
+    int getHourLength() {
+        return mHourLength;
+    }
+
+    char[] getMinute() {
+        return mMinute;
+    }
+
+    char[] getSecond() {
+        return mSecond;
+    }
+
+    char[] getAmPm() {
+        return mAmPm;
+    }
+
+    static int writeTwoDigits(int value, char[] out) {
+        out[0] = (char) ('0' + value / 10);
+        out[1] = (char) ('0' + value % 10);
+        return 2;
+    }
+
+    static int writeNumber(int value, char[] out) {
+        if (value < 10) {
+            out[0] = (char) ('0' + value);
+            return 1;
+        }
+        return writeTwoDigits(value, out);
+    }
+}
@@ -0,0 +1,69 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.content.res.AssetManager;
+import android.graphics.Typeface;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide registry of asset typefaces.
+ *
+ * The watch face picker creates an engine per preview, and every engine used to parse its
+ * fonts again in onCreate. Each asset is now loaded once, on first use, and the same
+ * Typeface instance is handed to every engine. Load time and asset size are tallied so the
+ * cost shows up in the debug log.
+ */
+final class TypefaceCache {
+
+    private static final String TAG = "TypefaceCache";
+
+    private static final Map<String, Typeface> sTypefaces = new HashMap<String, Typeface>();
+    private static long sLoadTimeMs;
+    private static long sAssetBytes;
+
+    private TypefaceCache() {
+    }
+
+    static synchronized Typeface get(AssetManager assets, String path) {
+        Typeface typeface = sTypefaces.get(path);
+        if (typeface == null) {
+            long start = SystemClock.elapsedRealtime();
+            typeface = Typeface.createFromAsset(assets, path);
+            long loadTimeMs = SystemClock.elapsedRealtime() - start;
+            long bytes = assetSize(assets, path);
+
+            sTypefaces.put(path, typeface);
+            sLoadTimeMs += loadTimeMs;
+            sAssetBytes += Math.max(0, bytes);
+
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "loaded " + path + " in " + loadTimeMs + "ms, " + bytes + " bytes; "
+                        + sTypefaces.size() + " typefaces, " + sLoadTimeMs + "ms, "
+                        + sAssetBytes + " bytes in total");
+            }
+        }
+        return typeface;
+    }
+
+    private static long assetSize(AssetManager assets, String path) {
+        InputStream in = null;
+        try {
+            in = assets.open(path);
+            return in.available();
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package info.ocodo.android.wearable.watchface;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Replays a stretch of wall clock time against a renderer as fast as it can draw.
+ *
+ * The driver steps a {@link SimulatedClock} at the interactive or ambient frame interval,
+ * delivering scripted zone changes and ambient transitions at their instants, and calls
+ * the target once per frame without sleeping. A day at 20 fps is 1.7 million frames, so
+ * a renderer doing a millisecond of work per frame covers it at several hundred times
+ * real speed. Midnight rollover and DST shifts come from the span and zone chosen: start
+ * before a transition date in a zone that observes one. A scripted zone change is set on
+ * the clock before the target hears of it, the way the system updates the default zone
+ * before broadcasting ACTION_TIMEZONE_CHANGED.
+ */
+class DaySimulation {
+
+    interface Target {
+        void onTimeZoneChanged(TimeZone timeZone);
+
+        void onAmbientModeChanged(boolean inAmbientMode);
+
+        void onFrame(long timeMillis);
+    }
+
+    /**
+     * What a run saw, for spotting per-minute leaks and frame-time outliers.
+     */
+    static class Report {
+        long frames;
+        long ambientFrames;
+        long totalFrameNanos;
+        long slowestFrameNanos;
+        long slowestFrameTimeMillis;
+        long framesOver16ms;
+
+        @Override
+        public String toString() {
+            return frames + " frames (" + ambientFrames + " ambient), mean "
+                    + (frames == 0 ? 0 : totalFrameNanos / frames / 1000) + "us, slowest "
+                    + slowestFrameNanos / 1000 + "us at " + slowestFrameTimeMillis
+                    + ", " + framesOver16ms + " over 16ms";
+        }
+    }
+
+    private static class Event {
+        final long timeMillis;
+        final TimeZone timeZone;
+        final Boolean ambient;
+
+        Event(long timeMillis, TimeZone timeZone, Boolean ambient) {
+            this.timeMillis = timeMillis;
+            this.timeZone = timeZone;
+            this.ambient = ambient;
+        }
+    }
+
+    private static final long SLOW_FRAME_NANOS = 16000000L;
+
+    private final SimulatedClock mClock;
+    private final List<Event> mEvents = new ArrayList<Event>();
+    private long mInteractiveFrameMillis = 50L;
+    private long mAmbientFrameMillis = 60 * 1000L;
+
+    DaySimulation(SimulatedClock clock) {
+        mClock = clock;
+    }
+
+    DaySimulation setFrameIntervals(long interactiveFrameMillis, long ambientFrameMillis) {
+        mInteractiveFrameMillis = interactiveFrameMillis;
+        mAmbientFrameMillis = ambientFrameMillis;
+        return this;
+    }
+
+    DaySimulation changeTimeZone(long timeMillis, TimeZone timeZone) {
+        addEvent(new Event(timeMillis, timeZone, null));
+        return this;
+    }
+
+    DaySimulation ambient(long fromMillis, long untilMillis) {
+        addEvent(new Event(fromMillis, null, Boolean.TRUE));
+        addEvent(new Event(untilMillis, null, Boolean.FALSE));
+        return this;
+    }
+
+    /**
+     * Runs from the clock's current time for {@code durationMillis}, starting interactive.
+     */
+    Report run(Target target, long durationMillis) {
+        Report report = new Report();
+        long time = mClock.currentTimeMillis();
+        long end = time + durationMillis;
+        boolean ambient = false;
+        int nextEvent = 0;
+
+        while (time < end) {
+            while (nextEvent < mEvents.size() && mEvents.get(nextEvent).timeMillis <= time) {
+                Event event = mEvents.get(nextEvent++);
+                if (event.timeZone != null) {
+                    mClock.setTimeZone(event.timeZone);
+                    target.onTimeZoneChanged(event.timeZone);
+                } else if (event.ambient != ambient) {
+                    ambient = event.ambient;
+                    target.onAmbientModeChanged(ambient);
+                }
+            }
+
+            mClock.setTimeMillis(time);
+            long start = System.nanoTime();
+            target.onFrame(time);
+            long frameNanos = System.nanoTime() - start;
+
+            report.frames++;
+            if (ambient) {
+                report.ambientFrames++;
+            }
+            report.totalFrameNanos += frameNanos;
+            if (frameNanos > report.slowestFrameNanos) {
+                report.slowestFrameNanos = frameNanos;
+                report.slowestFrameTimeMillis = time;
+            }
+            if (frameNanos > SLOW_FRAME_NANOS) {
+                report.framesOver16ms++;
+            }
+
+            long next = ambient
+                    ? (time / mAmbientFrameMillis + 1) * mAmbientFrameMillis
+                    : time + mInteractiveFrameMillis;
+            if (nextEvent < mEvents.size()) {
+                next = Math.min(next, Math.max(time + 1, mEvents.get(nextEvent).timeMillis));
+            }
+            time = next;
+        }
+        mClock.setTimeMillis(end);
+        return report;
+    }
+
+    private void addEvent(Event event) {
+        int i = mEvents.size();
+        while (i > 0 && mEvents.get(i - 1).timeMillis > event.timeMillis) {
+            i--;
+        }
+        mEvents.add(i, event);
+    }
+}
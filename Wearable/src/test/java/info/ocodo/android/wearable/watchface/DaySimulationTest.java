@@ -0,0 +1,170 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Canvas;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DaySimulationTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    /**
+     * 2017-03-25T06:00:00Z; London springs forward at 01:00Z on the 26th.
+     */
+    private static final long START_MILLIS = 1490421600000L;
+
+    /**
+     * The time keeping parts of a face, wired the way the engines wire them: zone
+     * lookups go through the injected clock and the receiver invalidates the caches.
+     * Interactive frames check that the date layer was rendered only on a new local day
+     * and the hands only on a new local minute, besides after a zone change or ambient.
+     */
+    private static class FaceTarget implements DaySimulation.Target {
+        final Clock clock;
+        final TimeDecomposer time;
+        final DateTextCache dateText;
+        final LayerCompositor compositor;
+        final Canvas canvas = new Canvas();
+        boolean ambient;
+        String drawnDate;
+        int drawnHour = -1;
+        int drawnMinute = -1;
+        int receivedZoneChanges;
+        int dateRenders;
+        int handRenders;
+        int interactiveDateRenders;
+        boolean redrawAll = true;
+        String drawnDay;
+        int drawnMinuteOfDay = -1;
+
+        FaceTarget(Clock clock) {
+            this.clock = clock;
+            time = new TimeDecomposer(clock.getTimeZone());
+            dateText = new DateTextCache("dd MMM");
+            compositor = new LayerCompositor(time)
+                    .add("date", LayerCompositor.Cadence.PER_DAY, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            dateRenders++;
+                            drawnDate = dateText.getText(time.getTimeMillis());
+                        }
+                    })
+                    .add("hands", LayerCompositor.Cadence.PER_MINUTE, new LayerCompositor.Renderer() {
+                        @Override
+                        public void render(Canvas canvas) {
+                            handRenders++;
+                            drawnHour = time.getHourOfDay();
+                            drawnMinute = time.getMinute();
+                        }
+                    });
+            compositor.setSurfaceSize(320, 320);
+        }
+
+        @Override
+        public void onTimeZoneChanged(TimeZone timeZone) {
+            receivedZoneChanges++;
+            time.setTimeZone(clock.getTimeZone());
+            compositor.invalidate();
+            dateText.invalidate();
+            redrawAll = true;
+        }
+
+        @Override
+        public void onAmbientModeChanged(boolean inAmbientMode) {
+            ambient = inAmbientMode;
+            redrawAll = true;
+        }
+
+        @Override
+        public void onFrame(long timeMillis) {
+            long now = clock.currentTimeMillis();
+            assertEquals(timeMillis, now);
+            time.update(now);
+            int dateRendersBefore = dateRenders;
+            int handRendersBefore = handRenders;
+            compositor.draw(canvas, now, ambient);
+
+            Calendar calendar = Calendar.getInstance(clock.getTimeZone());
+            calendar.setTimeInMillis(now);
+            String at = clock.getTimeZone().getID() + " " + now;
+
+            String day = calendar.get(Calendar.YEAR) + "-" + calendar.get(Calendar.DAY_OF_YEAR);
+            int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+            boolean newDay = redrawAll || ambient || !day.equals(drawnDay);
+            boolean newMinute = newDay || minuteOfDay != drawnMinuteOfDay;
+            assertEquals(at, newDay ? 1 : 0, dateRenders - dateRendersBefore);
+            assertEquals(at, newMinute ? 1 : 0, handRenders - handRendersBefore);
+            if (!ambient) {
+                interactiveDateRenders += dateRenders - dateRendersBefore;
+                redrawAll = false;
+            }
+            drawnDay = day;
+            drawnMinuteOfDay = minuteOfDay;
+            assertEquals(at, calendar.get(Calendar.HOUR_OF_DAY), drawnHour);
+            assertEquals(at, calendar.get(Calendar.MINUTE), drawnMinute);
+
+            SimpleDateFormat format = new SimpleDateFormat("dd MMM", Locale.getDefault());
+            format.setTimeZone(clock.getTimeZone());
+            assertEquals(at, format.format(new Date(now)).toUpperCase(Locale.getDefault()), drawnDate);
+        }
+    }
+
+    @Test
+    public void fortyEightHoursAcrossMidnightsDstAndAZoneChange() {
+        SimulatedClock clock = new SimulatedClock(START_MILLIS, TimeZone.getTimeZone("Europe/London"));
+        Clock previous = OcodoWatchFaceUtils.getClock();
+        OcodoWatchFaceUtils.setClock(clock);
+        try {
+            FaceTarget face = new FaceTarget(clock);
+            DaySimulation.Report report = new DaySimulation(clock)
+                    .setFrameIntervals(997L, 60 * 1000L)
+                    .ambient(START_MILLIS + 8 * HOUR_MS, START_MILLIS + 12 * HOUR_MS)
+                    .changeTimeZone(START_MILLIS + 30 * HOUR_MS + 17, TimeZone.getTimeZone("Asia/Kathmandu"))
+                    .run(face, 48 * HOUR_MS);
+
+            assertEquals(1, face.receivedZoneChanges);
+            assertEquals(START_MILLIS + 48 * HOUR_MS, clock.currentTimeMillis());
+            assertEquals(4 * 60, report.ambientFrames);
+            // First frame, leaving ambient, London midnight, the zone change and
+            // Kathmandu midnight; the DST shift is a new minute, not a new day.
+            assertEquals(5, face.interactiveDateRenders);
+            assertTrue(report.toString(), report.frames > 42 * HOUR_MS / 997);
+        } finally {
+            OcodoWatchFaceUtils.setClock(previous);
+        }
+    }
+
+    @Test
+    public void zoneChangesReachTheClockBeforeTheTarget() {
+        final SimulatedClock clock = new SimulatedClock(START_MILLIS, TimeZone.getTimeZone("UTC"));
+        final TimeZone tokyo = TimeZone.getTimeZone("Asia/Tokyo");
+        final int[] frames = new int[1];
+        new DaySimulation(clock)
+                .changeTimeZone(START_MILLIS + HOUR_MS, tokyo)
+                .run(new DaySimulation.Target() {
+                    @Override
+                    public void onTimeZoneChanged(TimeZone timeZone) {
+                        assertEquals(tokyo, clock.getTimeZone());
+                    }
+
+                    @Override
+                    public void onAmbientModeChanged(boolean inAmbientMode) {
+                    }
+
+                    @Override
+                    public void onFrame(long timeMillis) {
+                        frames[0]++;
+                    }
+                }, 2 * HOUR_MS);
+        assertEquals(2 * HOUR_MS / 50, frames[0]);
+    }
+}
@@ -0,0 +1,55 @@
+package info.ocodo.android.wearable.watchface;
+
+import info.ocodo.android.wearable.watchface.FrameRateGovernor.Tier;
+
+import org.junit.Test;
+
+import static info.ocodo.android.wearable.watchface.FrameRateGovernor.tierFor;
+import static org.junit.Assert.assertEquals;
+
+public class FrameRateGovernorTest {
+
+    private static final int ROOM_TENTHS_CELSIUS = 300;
+
+    @Test
+    public void stepsDownAtTheBatteryThresholds() {
+        assertEquals(Tier.FULL, tierFor(100, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.FULL, tierFor(50, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.REDUCED, tierFor(49, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.REDUCED, tierFor(30, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.LOW, tierFor(29, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.LOW, tierFor(15, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.MINIMAL, tierFor(14, false, false, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.MINIMAL, tierFor(0, false, false, ROOM_TENTHS_CELSIUS));
+    }
+
+    @Test
+    public void chargingRunsAtFullRate() {
+        assertEquals(Tier.FULL, tierFor(5, true, false, ROOM_TENTHS_CELSIUS));
+    }
+
+    @Test
+    public void batterySaverCapsAtLow() {
+        assertEquals(Tier.LOW, tierFor(100, false, true, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.LOW, tierFor(40, false, true, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.LOW, tierFor(100, true, true, ROOM_TENTHS_CELSIUS));
+        assertEquals(Tier.MINIMAL, tierFor(10, false, true, ROOM_TENTHS_CELSIUS));
+    }
+
+    @Test
+    public void heatStepsDownOneTier() {
+        assertEquals(Tier.FULL, tierFor(100, false, false, 419));
+        assertEquals(Tier.REDUCED, tierFor(100, false, false, 420));
+        assertEquals(Tier.LOW, tierFor(40, false, false, 450));
+        assertEquals(Tier.MINIMAL, tierFor(100, false, true, 420));
+        assertEquals(Tier.MINIMAL, tierFor(10, false, false, 420));
+    }
+
+    @Test
+    public void tiersMatchTheRequestedRates() {
+        assertEquals(20, Tier.FULL.framesPerSecond);
+        assertEquals(10, Tier.REDUCED.framesPerSecond);
+        assertEquals(4, Tier.LOW.framesPerSecond);
+        assertEquals(1, Tier.MINIMAL.framesPerSecond);
+    }
+}
@@ -0,0 +1,130 @@
+package info.ocodo.android.wearable.watchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntradayStepsTest {
+
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long DAY_MS = 24 * 60 * MINUTE_MS;
+    private static final long DAY = 17250;
+
+    private final IntradaySteps mSteps = new IntradaySteps();
+
+    @Test
+    public void firstTotalIsOnlyTheBaseline() {
+        mSteps.record(1000, at(DAY, 9 * 60));
+        assertEquals(0, mSteps.sum(0, IntradaySteps.MINUTES_PER_DAY));
+        mSteps.record(1200, at(DAY, 9 * 60 + 3));
+        assertEquals(200, mSteps.getMinute(9 * 60 + 3));
+        assertEquals(9 * 60 + 3, mSteps.getLastMinute());
+    }
+
+    @Test
+    public void downwardCorrectionsComeBackOut() {
+        mSteps.record(1000, at(DAY, 600));
+        mSteps.record(1500, at(DAY, 601));
+        mSteps.record(1400, at(DAY, 602));
+        mSteps.record(1600, at(DAY, 603));
+        assertEquals(600, mSteps.sum(0, IntradaySteps.MINUTES_PER_DAY));
+        assertEquals(400, mSteps.getMinute(601));
+        assertEquals(200, mSteps.getMinute(603));
+        assertEquals(1, mSteps.getCorrections());
+    }
+
+    @Test
+    public void correctionsWalkBackThroughEarlierMinutes() {
+        mSteps.record(1000, at(DAY, 100));
+        mSteps.record(1030, at(DAY, 101));
+        mSteps.record(1050, at(DAY, 105));
+        mSteps.record(1010, at(DAY, 110));
+        assertEquals(10, mSteps.getMinute(101));
+        assertEquals(0, mSteps.getMinute(105));
+        assertEquals(10, mSteps.sum(0, IntradaySteps.MINUTES_PER_DAY));
+
+        // Dropping below the baseline takes out what there is and no more.
+        mSteps.record(900, at(DAY, 111));
+        assertEquals(0, mSteps.sum(0, IntradaySteps.MINUTES_PER_DAY));
+        mSteps.record(950, at(DAY, 112));
+        assertEquals(50, mSteps.getMinute(112));
+    }
+
+    @Test
+    public void midnightStartsFromZero() {
+        mSteps.record(8000, at(DAY, 23 * 60 + 59));
+        mSteps.record(40, at(DAY + 1, 2));
+        assertEquals(DAY + 1, mSteps.getDay());
+        assertEquals(40, mSteps.getMinute(2));
+        assertEquals(40, mSteps.sum(0, IntradaySteps.MINUTES_PER_DAY));
+    }
+
+    @Test
+    public void rollingOverClearsTheDayBeforeAnyTotalArrives() {
+        mSteps.record(100, at(DAY, 600));
+        mSteps.record(300, at(DAY, 700));
+        mSteps.rollTo(at(DAY, 800));
+        assertEquals(200, mSteps.getHour(11));
+
+        mSteps.rollTo(at(DAY + 1, 0));
+        assertEquals(DAY + 1, mSteps.getDay());
+        assertEquals(0, mSteps.getMaxBucket());
+        mSteps.record(25, at(DAY + 1, 5));
+        assertEquals(25, mSteps.getRolling(15));
+    }
+
+    @Test
+    public void sumsHoursRollingWindowsAndBuckets() {
+        mSteps.record(1000, at(DAY, 9 * 60 + 50));
+        mSteps.record(1100, at(DAY, 9 * 60 + 55));
+        mSteps.record(1400, at(DAY, 10 * 60 + 5));
+        mSteps.record(1450, at(DAY, 10 * 60 + 6));
+        assertEquals(100, mSteps.getHour(9));
+        assertEquals(350, mSteps.getHour(10));
+        assertEquals(450, mSteps.getRolling(15));
+        assertEquals(350, mSteps.getRolling(10));
+        assertEquals(50, mSteps.getRolling(1));
+        assertEquals(100, mSteps.getBucket(39));
+        assertEquals(350, mSteps.getBucket(40));
+        assertEquals(350, mSteps.getMaxBucket());
+    }
+
+    @Test
+    public void correctionsLowerTheMaxBucket() {
+        mSteps.record(1000, at(DAY, 600));
+        mSteps.record(1300, at(DAY, 601));
+        mSteps.record(1400, at(DAY, 620));
+        assertEquals(300, mSteps.getMaxBucket());
+
+        mSteps.record(1050, at(DAY, 621));
+        assertEquals(0, mSteps.getBucket(41));
+        assertEquals(50, mSteps.getBucket(40));
+        assertEquals(50, mSteps.getMaxBucket());
+    }
+
+    @Test
+    public void encodeRoundTrips() {
+        mSteps.record(100, at(DAY, 60));
+        mSteps.record(250, at(DAY, 61));
+        mSteps.record(400, at(DAY, 1439));
+
+        IntradaySteps restored = new IntradaySteps();
+        assertTrue(restored.decode(mSteps.encode(), DAY));
+        assertEquals(150, restored.getMinute(61));
+        assertEquals(150, restored.getMinute(1439));
+        assertEquals(1439, restored.getLastMinute());
+        assertEquals(150, restored.getMaxBucket());
+        restored.record(410, at(DAY, 1439));
+        assertEquals(160, restored.getMinute(1439));
+        assertEquals(160, restored.getMaxBucket());
+
+        assertFalse(new IntradaySteps().decode(mSteps.encode(), DAY + 1));
+        assertFalse(new IntradaySteps().decode("garbage", DAY));
+    }
+
+    private static long at(long day, int minuteOfDay) {
+        return day * DAY_MS + minuteOfDay * MINUTE_MS + 1234;
+    }
+}
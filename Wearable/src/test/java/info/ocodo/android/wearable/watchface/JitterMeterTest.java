@@ -0,0 +1,49 @@
+package info.ocodo.android.wearable.watchface;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JitterMeterTest {
+
+    @Test
+    public void evenSweepHasNoVariance() {
+        JitterMeter jitter = new JitterMeter();
+        // 20 fps sweep for two minutes, wrapping through 12 twice.
+        for (int frame = 0; frame < 2400; frame++) {
+            jitter.add(frame * 50 % 60000 * 0.006f);
+        }
+        assertEquals(2399, jitter.getCount());
+        assertEquals(0.3, jitter.getMeanStep(), 1e-4);
+        assertTrue(jitter.toString(), jitter.getStepVariance() < 1e-8);
+    }
+
+    @Test
+    public void unevenFramesShowUpAsVariance() {
+        JitterMeter jitter = new JitterMeter();
+        Random random = new Random(7);
+        long time = 0;
+        for (int frame = 0; frame < 2400; frame++) {
+            jitter.add(time % 60000 * 0.006f);
+            time += 50 + random.nextInt(9) - 4;
+        }
+        assertEquals(0.3, jitter.getMeanStep(), 1e-3);
+        assertTrue(jitter.toString(), jitter.getStepVariance() > 1e-4);
+    }
+
+    @Test
+    public void resetStartsANewSeries() {
+        JitterMeter jitter = new JitterMeter();
+        jitter.add(0f);
+        jitter.add(90f);
+        jitter.reset();
+        jitter.add(10f);
+        jitter.add(11f);
+        assertEquals(1, jitter.getCount());
+        assertEquals(1.0, jitter.getMeanStep(), 1e-6);
+        assertEquals(0.0, jitter.getStepVariance(), 0.0);
+    }
+}
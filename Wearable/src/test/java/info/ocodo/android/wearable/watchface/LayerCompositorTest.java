@@ -0,0 +1,99 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Canvas;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayerCompositorTest {
+
+    /**
+     * 2017-01-01T10:00:00Z.
+     */
+    private static final long START_MILLIS = 1483264800000L;
+
+    private final StringBuilder mDrawn = new StringBuilder();
+    private final Canvas mCanvas = new Canvas();
+    private LayerCompositor mCompositor;
+
+    @Before
+    public void setUp() {
+        mCompositor = new LayerCompositor(new TimeDecomposer(TimeZone.getTimeZone("UTC")))
+                .add("dial", LayerCompositor.Cadence.STATIC, recorder("dial"))
+                .add("date", LayerCompositor.Cadence.PER_DAY, recorder("date"))
+                .add("steps", LayerCompositor.Cadence.PER_MINUTE, recorder("steps"))
+                .add("time", LayerCompositor.Cadence.PER_SECOND, recorder("time"))
+                .add("colon", LayerCompositor.Cadence.PER_FRAME, recorder("colon"))
+                .add("hands", LayerCompositor.Cadence.PER_MINUTE, recorder("hands"))
+                .add("second hand", LayerCompositor.Cadence.PER_FRAME, recorder("second"));
+        mCompositor.setSurfaceSize(320, 320);
+    }
+
+    @Test
+    public void keepsTheStackingOrder() {
+        assertEquals("dial date steps time colon hands second", draw(START_MILLIS));
+    }
+
+    @Test
+    public void onlyRebuildsTheRunThatMovesOn() {
+        draw(START_MILLIS);
+        assertEquals("time colon hands second", draw(START_MILLIS + 500));
+        assertEquals("time colon hands second", draw(START_MILLIS + 59 * 1000L));
+        assertEquals("steps time colon hands second", draw(START_MILLIS + 60 * 1000L));
+    }
+
+    @Test
+    public void aNewDayRebuildsTheRunsAboveIt() {
+        draw(START_MILLIS);
+        assertEquals("dial date steps time colon hands second",
+                draw(START_MILLIS + 14 * 60 * 60 * 1000L));
+    }
+
+    @Test
+    public void invalidatingALayerRebuildsItsRun() {
+        draw(START_MILLIS);
+        mCompositor.invalidate("steps");
+        assertEquals("steps time colon hands second", draw(START_MILLIS + 100));
+        mCompositor.invalidate("date");
+        assertEquals("dial date steps time colon hands second", draw(START_MILLIS + 200));
+    }
+
+    @Test
+    public void isCurrentWithinTheSecondDrawn() {
+        assertFalse(mCompositor.isCurrent(START_MILLIS, false));
+        draw(START_MILLIS);
+        assertTrue(mCompositor.isCurrent(START_MILLIS + 999, false));
+        assertFalse(mCompositor.isCurrent(START_MILLIS + 1000, false));
+        assertFalse(mCompositor.isCurrent(START_MILLIS + 999, true));
+    }
+
+    @Test
+    public void ambientDrawsEveryLayerAndDropsTheCache() {
+        draw(START_MILLIS);
+        mDrawn.setLength(0);
+        mCompositor.draw(mCanvas, START_MILLIS + 100, true);
+        assertEquals("dial date steps time colon hands second", mDrawn.toString().trim());
+        assertEquals("dial date steps time colon hands second", draw(START_MILLIS + 200));
+    }
+
+    private String draw(long now) {
+        mDrawn.setLength(0);
+        mCompositor.draw(mCanvas, now, false);
+        return mDrawn.toString().trim();
+    }
+
+    private LayerCompositor.Renderer recorder(final String name) {
+        return new LayerCompositor.Renderer() {
+            @Override
+            public void render(Canvas canvas) {
+                mDrawn.append(name).append(' ');
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package info.ocodo.android.wearable.watchface;
+
+import java.util.TimeZone;
+
+/**
+ * A clock that only moves, or changes zone, when told to.
+ */
+class SimulatedClock implements Clock {
+
+    private long mTimeMillis;
+    private TimeZone mTimeZone;
+
+    SimulatedClock(long timeMillis, TimeZone timeZone) {
+        mTimeMillis = timeMillis;
+        mTimeZone = timeZone;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return mTimeMillis;
+    }
+
+    @Override
+    public synchronized TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    synchronized void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    synchronized void setTimeMillis(long timeMillis) {
+        mTimeMillis = timeMillis;
+    }
+
+    synchronized void advance(long millis) {
+        mTimeMillis += millis;
+    }
+}
@@ -0,0 +1,68 @@
+package info.ocodo.android.wearable.watchface;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class SweepTimebaseTest {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * Runs in step with System.nanoTime(), plus whatever correction the test applies.
+     */
+    private static class AdjustableClock implements Clock {
+        final long mOriginNanos = System.nanoTime();
+        long mAdjustMillis;
+
+        @Override
+        public long currentTimeMillis() {
+            return 1500000000000L + (System.nanoTime() - mOriginNanos) / NANOS_PER_MILLI + mAdjustMillis;
+        }
+
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getTimeZone("UTC");
+        }
+    }
+
+    private final AdjustableClock mClock = new AdjustableClock();
+    private final SweepTimebase mTimebase = new SweepTimebase(mClock);
+
+    @Test
+    public void firstFrameIsOnTheWallClock() {
+        assertEquals(0, error(), 2);
+    }
+
+    @Test
+    public void resetStepsStraightToANewTime() {
+        error();
+        mClock.mAdjustMillis += 50;
+        assertEquals(-50, error(), 2);
+        mTimebase.reset();
+        assertEquals(0, error(), 2);
+    }
+
+    @Test
+    public void smallCorrectionsAreSlewedAndLargeOnesStepped() throws InterruptedException {
+        error();
+        mClock.mAdjustMillis += 50;
+        Thread.sleep(1050);
+        // Re-anchored once: 2 ms of the 50 ms have been taken up.
+        assertEquals(-48, error(), 2);
+
+        mClock.mAdjustMillis += 250;
+        Thread.sleep(1050);
+        assertEquals(0, error(), 2);
+    }
+
+    /**
+     * How far the timebase is behind the clock for a frame at the current instant.
+     */
+    private long error() {
+        long wall = mTimebase.toWallMillis(System.nanoTime());
+        return wall - mClock.currentTimeMillis();
+    }
+}
@@ -0,0 +1,67 @@
+package info.ocodo.android.wearable.watchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TickGeometryTest {
+
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void firstTickPointsAtTwelve() {
+        float[] points = TickGeometry.ring(12, 80, 100, 150, 150, TickGeometry.ALL);
+        assertEquals(12 * 4, points.length);
+        assertEquals(150f, points[0], DELTA);
+        assertEquals(70f, points[1], DELTA);
+        assertEquals(150f, points[2], DELTA);
+        assertEquals(50f, points[3], DELTA);
+    }
+
+    @Test
+    public void ticksRunClockwise() {
+        float[] points = TickGeometry.ring(4, 80, 100, 150, 150, TickGeometry.ALL);
+        // 3 o'clock, 6 o'clock and 9 o'clock outer ends.
+        assertEquals(250f, points[4 + 2], DELTA);
+        assertEquals(150f, points[4 + 3], DELTA);
+        assertEquals(150f, points[8 + 2], DELTA);
+        assertEquals(250f, points[8 + 3], DELTA);
+        assertEquals(50f, points[12 + 2], DELTA);
+        assertEquals(150f, points[12 + 3], DELTA);
+    }
+
+    @Test
+    public void matchesPerTickTrigonometry() {
+        float[] points = TickGeometry.ring(60, 90, 100, 160, 140, TickGeometry.ALL);
+        for (int tick = 0; tick < 60; tick++) {
+            double rotation = tick * Math.PI * 2 / 60;
+            assertEquals(160 + (float) Math.sin(rotation) * 90, points[tick * 4], DELTA);
+            assertEquals(140 + (float) -Math.cos(rotation) * 90, points[tick * 4 + 1], DELTA);
+            assertEquals(160 + (float) Math.sin(rotation) * 100, points[tick * 4 + 2], DELTA);
+            assertEquals(140 + (float) -Math.cos(rotation) * 100, points[tick * 4 + 3], DELTA);
+        }
+    }
+
+    @Test
+    public void skipEveryLeavesOutHourPositions() {
+        assertEquals(48, TickGeometry.countTicks(60, TickGeometry.skipEvery(5)));
+        float[] points = TickGeometry.ring(60, 90, 100, 0, 0, TickGeometry.skipEvery(5));
+        assertEquals(48 * 4, points.length);
+        // The first tick written is minute 1, not 12 o'clock.
+        assertEquals((float) Math.sin(Math.PI * 2 / 60) * 100, points[2], DELTA);
+    }
+
+    @Test
+    public void skipIndexLeavesOutOneTick() {
+        assertEquals(11, TickGeometry.countTicks(12, TickGeometry.skipIndex(3)));
+    }
+
+    @Test
+    public void fillRingAppendsAfterOffset() {
+        float[] points = new float[4 + 12 * 4];
+        int end = TickGeometry.fillRing(points, 4, 12, 80, 100, 150, 150, TickGeometry.ALL);
+        assertEquals(points.length, end);
+        assertEquals(0f, points[3], 0f);
+        assertEquals(70f, points[5], DELTA);
+    }
+}
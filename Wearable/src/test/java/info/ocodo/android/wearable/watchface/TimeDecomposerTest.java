@@ -0,0 +1,135 @@
+package info.ocodo.android.wearable.watchface;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeDecomposerTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    /**
+     * 2017-01-01T00:00:00Z, a year that crosses both DST transitions of every zone below.
+     */
+    private static final long START_MILLIS = 1483228800000L;
+
+    private static final String[] ZONES = {
+            "UTC", "Europe/London", "America/New_York", "Australia/Lord_Howe",
+            "Asia/Kolkata", "Asia/Kathmandu", "Pacific/Chatham"
+    };
+
+    @Test
+    public void matchesCalendarAtRandomInstants() {
+        Random random = new Random(42);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            TimeDecomposer time = new TimeDecomposer(zone);
+            for (int i = 0; i < 20000; i++) {
+                assertMatches(time, zone, START_MILLIS + (long) (random.nextDouble() * 365 * DAY_MS));
+            }
+        }
+    }
+
+    @Test
+    public void matchesCalendarWalkingThroughTransitions() {
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            TimeDecomposer time = new TimeDecomposer(zone);
+            // Whole year at a step that is not a divisor of any offset change.
+            for (long t = START_MILLIS; t < START_MILLIS + 365 * DAY_MS; t += 7 * 60 * 1000L + 13) {
+                assertMatches(time, zone, t);
+            }
+        }
+    }
+
+    @Test
+    public void followsTheClockBackwards() {
+        TimeZone zone = TimeZone.getTimeZone("Europe/London");
+        TimeDecomposer time = new TimeDecomposer(zone);
+        for (long t = START_MILLIS + 365 * DAY_MS; t > START_MILLIS; t -= 3 * HOUR_MS + 17) {
+            assertMatches(time, zone, t);
+        }
+    }
+
+    @Test
+    public void switchingZoneDropsTheCachedOffset() {
+        TimeDecomposer time = new TimeDecomposer(TimeZone.getTimeZone("UTC"));
+        time.update(START_MILLIS);
+        assertEquals(0, time.getHourOfDay());
+
+        TimeZone kolkata = TimeZone.getTimeZone("Asia/Kolkata");
+        time.setTimeZone(kolkata);
+        assertMatches(time, kolkata, START_MILLIS);
+        assertEquals(START_MILLIS + kolkata.getOffset(START_MILLIS), time.toLocalMillis(START_MILLIS));
+    }
+
+    @Test
+    public void rotations() {
+        TimeDecomposer time = new TimeDecomposer(TimeZone.getTimeZone("UTC"));
+        time.update(START_MILLIS + 15 * HOUR_MS + 30 * 60 * 1000L + 45 * 1000L + 500);
+        assertEquals(105f, time.getHourRotation(), 0f);
+        assertEquals(180f, time.getMinuteRotation(), 0f);
+        assertEquals(270f, time.getTickingSecondRotation(), 0f);
+        assertEquals(273f, time.getSweepingSecondRotation(), 1e-3f);
+        assertEquals(0f, time.getStopToGoSecondRotation(45 * 1000L), 0f);
+        assertEquals(45500 * 360f / 58000, time.getStopToGoSecondRotation(58 * 1000L), 1e-3f);
+    }
+
+    @Test
+    public void stopToGoSweepsFor58500MillisThenRests() {
+        TimeDecomposer time = new TimeDecomposer(TimeZone.getTimeZone("UTC"));
+        long minute = START_MILLIS + 10 * 60 * 1000L;
+        time.update(minute);
+        assertEquals(0f, time.getStopToGoSecondRotation(58500L), 0f);
+        time.update(minute + 29250);
+        assertEquals(180f, time.getStopToGoSecondRotation(58500L), 1e-3f);
+        time.update(minute + 58499);
+        assertEquals(360f, time.getStopToGoSecondRotation(58500L), 0.01f);
+
+        // The 1.5 s pause at 12, until the minute hand jumps.
+        time.update(minute + 58500);
+        assertEquals(0f, time.getStopToGoSecondRotation(58500L), 0f);
+        assertEquals(1500, 60000 - time.getMillisOfMinute());
+        time.update(minute + 59999);
+        assertEquals(0f, time.getStopToGoSecondRotation(58500L), 0f);
+        assertEquals(60f, time.getMinuteRotation(), 0f);
+        time.update(minute + 60000);
+        assertEquals(66f, time.getMinuteRotation(), 0f);
+    }
+
+    @Test
+    public void beatingHandSnapsToBeats() {
+        TimeDecomposer time = new TimeDecomposer(TimeZone.getTimeZone("UTC"));
+        time.update(START_MILLIS + 45 * 1000L + 124);
+        assertEquals(270f, time.getBeatingSecondRotation(8), 1e-3f);
+        time.update(START_MILLIS + 45 * 1000L + 125);
+        assertEquals(270.75f, time.getBeatingSecondRotation(8), 1e-3f);
+        time.update(START_MILLIS + 45 * 1000L + 999);
+        assertEquals(275.25f, time.getBeatingSecondRotation(8), 1e-3f);
+        // 6 Hz beats fall on 0, 167, 333, ... ms.
+        time.update(START_MILLIS + 45 * 1000L + 166);
+        assertEquals(270f, time.getBeatingSecondRotation(6), 1e-3f);
+        time.update(START_MILLIS + 45 * 1000L + 167);
+        assertEquals(271f, time.getBeatingSecondRotation(6), 1e-3f);
+        time.update(START_MILLIS + 45 * 1000L + 500);
+        assertEquals(time.getTickingSecondRotation(), time.getBeatingSecondRotation(1), 0f);
+    }
+
+    private static void assertMatches(TimeDecomposer time, TimeZone zone, long timeMillis) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(timeMillis);
+        time.update(timeMillis);
+        String at = zone.getID() + " " + timeMillis;
+        assertEquals(at, calendar.get(Calendar.HOUR_OF_DAY), time.getHourOfDay());
+        assertEquals(at, calendar.get(Calendar.HOUR), time.getHour());
+        assertEquals(at, calendar.get(Calendar.MINUTE), time.getMinute());
+        assertEquals(at, calendar.get(Calendar.SECOND), time.getSecond());
+        assertEquals(at, calendar.get(Calendar.MILLISECOND), time.getMillisecond());
+        assertEquals(at, calendar.get(Calendar.AM_PM) == Calendar.PM, time.isPm());
+    }
+}
@@ -0,0 +1,117 @@
+package info.ocodo.android.wearable.watchface;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class TimeTextFormatterTest {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * Every digit is 10 wide and everything else 4, without touching the platform.
+     */
+    private static class FixedWidthPaint extends Paint {
+        @Override
+        public float getTextSize() {
+            return 20f;
+        }
+
+        @Override
+        public Typeface getTypeface() {
+            return null;
+        }
+
+        @Override
+        public float measureText(char[] text, int index, int count) {
+            float width = 0;
+            for (int i = index; i < index + count; i++) {
+                width += text[i] >= '0' && text[i] <= '9' ? 10f : 4f;
+            }
+            return width;
+        }
+    }
+
+    private final TimeTextFormatter mFormatter = new TimeTextFormatter("AM", "PM");
+    private final GlyphWidths mWidths = new GlyphWidths(new FixedWidthPaint());
+
+    @Test
+    public void formatsEveryMinuteLikeStringFormat() {
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            int hourOfDay = minuteOfDay / 60;
+            int minute = minuteOfDay % 60;
+            int second = minuteOfDay % 60;
+
+            mFormatter.setTime(hourOfDay, minute, second, true);
+            assertEquals(String.format("%02d", hourOfDay), hour());
+            assertEquals(String.format("%02d", minute), new String(mFormatter.getMinute()));
+            assertEquals(String.format("%02d", second), new String(mFormatter.getSecond()));
+
+            mFormatter.setTime(hourOfDay, minute, second, false);
+            int hour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+            assertEquals(String.valueOf(hour), hour());
+            assertEquals(hourOfDay < 12 ? "AM" : "PM", new String(mFormatter.getAmPm()));
+        }
+    }
+
+    @Test
+    public void measuresDigitsFromTheCache() {
+        mFormatter.setTime(9, 5, 0, false);
+        assertEquals(10f, mWidths.measure(mFormatter.getHour(), mFormatter.getHourLength()), 0f);
+        mFormatter.setTime(21, 5, 0, true);
+        assertEquals(20f, mWidths.measure(mFormatter.getHour(), mFormatter.getHourLength()), 0f);
+        assertEquals(8f, mWidths.measure(mFormatter.getAmPm(), mFormatter.getAmPm().length), 0f);
+    }
+
+    @Test
+    public void formattingADayDoesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        // Warm up so class loading and JIT compilation are not counted.
+        for (int i = 0; i < 20; i++) {
+            formatDay();
+        }
+        long overhead = threads.getThreadAllocatedBytes(thread);
+        overhead = threads.getThreadAllocatedBytes(thread) - overhead;
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        float width = formatDay();
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertEquals(0, allocated);
+        assertEquals(true, width > 0);
+    }
+
+    /**
+     * Formats and measures every minute of a day in both modes, as the frame path would.
+     */
+    private float formatDay() {
+        float width = 0;
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            for (int mode = 0; mode < 2; mode++) {
+                mFormatter.setTime(minuteOfDay / 60, minuteOfDay % 60, minuteOfDay % 60, mode == 0);
+                width += mWidths.measure(mFormatter.getHour(), mFormatter.getHourLength());
+                width += mWidths.measure(mFormatter.getMinute(), 2);
+                width += mWidths.measure(mFormatter.getSecond(), 2);
+                width += mWidths.measure(mFormatter.getAmPm(), mFormatter.getAmPm().length);
+            }
+        }
+        return width;
+    }
+
+    private String hour() {
+        return new String(mFormatter.getHour(), 0, mFormatter.getHourLength());
+    }
+}